@@ -0,0 +1,161 @@
+package LLD.PubSubSystem.V1.Approach_1_Tightly_Coupled;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// What to do when a subscriber's queue is full.
+enum OverflowPolicy {
+    BLOCK,          // publisher waits for room: nothing lost, but a slow consumer slows publishers again
+    DROP_OLDEST,    // evict the oldest queued message to make room: publisher never waits
+    REJECT          // refuse the new message for this subscriber: publisher never waits
+}
+
+// Async subscription: sits in Topic's consumer list like any other Consumer, but onMessage
+// only enqueues into a bounded queue. A dispatcher task on `executor` drains the queue into
+// the real consumer, so a slow consumer only backs up its own queue instead of every
+// publisher on the topic.
+//
+// At most one dispatcher per subscription runs at a time (the `scheduled` flag), so the
+// consumer still sees messages one at a time and in publish order, and no consumer owns a
+// thread while its queue is empty. Any executor works: a shared pool, or one thread per
+// subscriber (e.g. a virtual thread per task executor on Java 21+).
+class AsyncConsumer extends Consumer {
+    // Messages delivered per dispatcher run before giving the pool thread back, so one
+    // busy subscriber can't starve the others sharing the pool.
+    private static final int DRAIN_BATCH = 64;
+
+    private final Topic topic;
+    private final Consumer delegate;
+    private final ArrayBlockingQueue<Message> queue;
+    private final OverflowPolicy policy;
+    private final Executor executor;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drainTask = this::drain;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public AsyncConsumer(Topic topic, Consumer delegate, int capacity, OverflowPolicy policy, Executor executor) {
+        super(delegate.getController());
+        this.topic = topic;
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+        this.executor = executor;
+    }
+
+    // Called on the publisher's thread.
+    public void onMessage(Topic topic, Message message) {
+        switch (policy) {
+            case BLOCK:
+                try {
+                    queue.put(message);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(message)) {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                break;
+            case REJECT:
+                if (!queue.offer(message)) {
+                    dropped.increment();
+                    return;
+                }
+                break;
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                // No pool thread for us (shut down or saturated). Drain on this thread
+                // instead of leaving `scheduled` set with nobody to clear it, which would
+                // strand the queue and block BLOCK publishers for good.
+                drain();
+            }
+        }
+    }
+
+    // Runs with `scheduled` set, and always clears it, whatever the consumer throws.
+    private void drain() {
+        while (true) {
+            boolean completed = false;
+            try {
+                drainBatch();
+                completed = true;
+            } finally {
+                scheduled.set(false);
+                if (!completed) {
+                    // The consumer threw an Error, which goes up to the executor. Hand what's
+                    // left to a fresh run first: BLOCK publishers may all be waiting on it.
+                    resubmitAfterError();
+                }
+            }
+            // A publish may have slipped in after the last poll but before the flag was
+            // cleared and seen it still set; pick it up here rather than strand it.
+            if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(drainTask);
+                return;
+            } catch (RejectedExecutionException e) {
+                // Keep draining here, as in onMessage.
+            }
+        }
+    }
+
+    private void resubmitAfterError() {
+        if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+    }
+
+    private void drainBatch() {
+        Message message;
+        int budget = DRAIN_BATCH;
+        while (budget-- > 0 && (message = queue.poll()) != null) {
+            try {
+                delegate.onMessage(topic, message);
+                delivered.increment();
+            } catch (RuntimeException e) {
+                // One bad message mustn't kill the subscription.
+                failed.increment();
+            }
+        }
+    }
+
+    public Consumer getDelegate() {
+        return delegate;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+}
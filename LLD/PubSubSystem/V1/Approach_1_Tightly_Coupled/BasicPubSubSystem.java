@@ -1,9 +1,9 @@
 package LLD.PubSubSystem.V1.Approach_1_Tightly_Coupled;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 class Message {
     String data;
@@ -19,11 +19,13 @@ class Message {
 
 class Topic {
     private String name;
-    private List<Consumer> consumers;
+    // Copy-on-write snapshot: subscribe swaps in a new array and broadcast iterates
+    // whichever one it read, so publishers never lock and never see a half-added consumer.
+    private volatile Consumer[] consumers;
 
     public Topic(String name) {
         this.name = name;
-        this.consumers = new ArrayList<>();
+        this.consumers = new Consumer[0];
     }
 
     public void broadcast(Message message) {
@@ -32,8 +34,19 @@ class Topic {
         }
     }
 
-    public void subscribe(Consumer consumer) {
-        consumers.add(consumer);
+    public synchronized void subscribe(Consumer consumer) {
+        Consumer[] current = consumers;
+        Consumer[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = consumer;
+        consumers = next;
+    }
+
+    // Delivers to the consumer from `executor` through a bounded queue, so publishing to
+    // this topic is just an enqueue for it (see AsyncConsumer).
+    public AsyncConsumer subscribeAsync(Consumer consumer, int queueCapacity, OverflowPolicy policy, Executor executor) {
+        AsyncConsumer async = new AsyncConsumer(this, consumer, queueCapacity, policy, executor);
+        subscribe(async);
+        return async;
     }
 
     public String getName() {
@@ -55,6 +68,10 @@ abstract class Consumer {
         controller.subscribe(this, topic_name);
     }
 
+    public AsyncConsumer subscribeAsync(String topic_name, int queueCapacity, OverflowPolicy policy, Executor executor) {
+        return controller.subscribeAsync(this, topic_name, queueCapacity, policy, executor);
+    }
+
     public PubSubController getController() {
         return this.controller;
     }
@@ -86,16 +103,21 @@ class PubSubController {
     private Map<String, Topic> topics;
 
     public PubSubController() {
-        this.topics = new HashMap<>();
+        this.topics = new ConcurrentHashMap<>();
     }
 
+    // Plain get() first: for an existing topic that's a lock-free read with no allocation.
+    // Only the first use of a name reaches computeIfAbsent, which builds exactly one Topic.
     private Topic getOrCreateTopic(String topic_name) {
-        topics.putIfAbsent(topic_name, new Topic(topic_name));
-        return topics.get(topic_name);
+        Topic topic = topics.get(topic_name);
+        if (topic == null) {
+            topic = topics.computeIfAbsent(topic_name, Topic::new);
+        }
+        return topic;
     }
 
     public void createTopic(String topic_name) {
-        topics.putIfAbsent(topic_name, new Topic(topic_name));
+        getOrCreateTopic(topic_name);
     }
 
     public void subscribe(Consumer consumer, String topic_name) {
@@ -103,6 +125,12 @@ class PubSubController {
         topic.subscribe(consumer);
     }
 
+    public AsyncConsumer subscribeAsync(Consumer consumer, String topic_name, int queueCapacity,
+                                        OverflowPolicy policy, Executor executor) {
+        Topic topic = getOrCreateTopic(topic_name);
+        return topic.subscribeAsync(consumer, queueCapacity, policy, executor);
+    }
+
     public void publish(Publisher producer, String topic_name, Message message) {
         Topic topic = getOrCreateTopic(topic_name);
         System.out.println("Publishing message..." + message.getData());
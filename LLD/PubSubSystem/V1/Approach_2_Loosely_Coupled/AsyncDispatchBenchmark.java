@@ -0,0 +1,91 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Publisher latency with one slow consumer on the topic, sync vs async delivery.
+//
+// The topic has FAST_CONSUMERS consumers that just count, and one that takes SLOW_MS per
+// message. A publisher sends MESSAGES messages, one every PUBLISH_GAP_US, i.e. much faster
+// than the slow consumer can keep up with, and we time each broadcast call.
+//   sync         - every publish waits for the slow consumer: latency = SLOW_MS
+//   drop-oldest  - publish is an enqueue; slow consumer loses its oldest backlog
+//   reject       - publish is an enqueue; slow consumer misses the newest messages
+//   block        - flat until the slow consumer's queue fills, then back to slow-consumer pace
+//
+// Calls Topic.broadcast directly so the controller's println doesn't swamp the numbers.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.AsyncDispatchBenchmark
+public class AsyncDispatchBenchmark {
+
+    private static final int FAST_CONSUMERS = 3;
+    private static final long SLOW_MS = 2;
+    private static final int MESSAGES = 2_000;
+    private static final long PUBLISH_GAP_US = 100;
+    private static final int QUEUE_CAPACITY = 256;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%-12s %9s %9s %9s %12s %12s%n",
+                "mode", "p50 us", "p99 us", "max us", "fast got", "slow got");
+        run("sync", null);
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            run(policy.name().toLowerCase().replace('_', '-'), policy);
+        }
+    }
+
+    private static void run(String name, OverflowPolicy policy) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(FAST_CONSUMERS + 1);
+        Topic topic = new Topic("orders");
+        LongAdder fast = new LongAdder();
+        LongAdder slow = new LongAdder();
+        List<AsyncConsumer> subscriptions = new ArrayList<>();
+
+        Consumer fastConsumer = (t, m) -> fast.increment();
+        Consumer slowConsumer = (t, m) -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(SLOW_MS));
+            slow.increment();
+        };
+        for (int i = 0; i < FAST_CONSUMERS; i++) {
+            if (policy == null) {
+                topic.subscribe(fastConsumer);
+            } else {
+                subscriptions.add(topic.subscribeAsync(fastConsumer, QUEUE_CAPACITY, policy, pool));
+            }
+        }
+        if (policy == null) {
+            topic.subscribe(slowConsumer);
+        } else {
+            subscriptions.add(topic.subscribeAsync(slowConsumer, QUEUE_CAPACITY, policy, pool));
+        }
+
+        long[] latencies = new long[MESSAGES];
+        Message message = new Message("order-created");
+        for (int i = 0; i < MESSAGES; i++) {
+            long start = System.nanoTime();
+            topic.broadcast(message);
+            latencies[i] = System.nanoTime() - start;
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(PUBLISH_GAP_US));
+        }
+
+        // Let the queues drain before counting what each side received.
+        for (AsyncConsumer subscription : subscriptions) {
+            while (subscription.getQueueDepth() > 0) {
+                Thread.sleep(10);
+            }
+        }
+        Thread.sleep(2 * SLOW_MS);
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        Arrays.sort(latencies);
+        System.out.printf("%-12s %9.1f %9.1f %9.1f %12d %12d%n", name,
+                latencies[MESSAGES / 2] / 1e3, latencies[MESSAGES * 99 / 100] / 1e3, latencies[MESSAGES - 1] / 1e3,
+                fast.sum(), slow.sum());
+    }
+}
@@ -1,39 +1,499 @@
 package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 class Message {
+    // Messages with the same key go to the same partition, so they stay in order (see
+    // Topic.partitionOf). null = no ordering needed.
+    String key;
     String data;
+    // Position in the topic's log, or -1 for topics without one.
+    long offset;
+    // Created on first use; what filtered subscriptions match on (see MessageFilter).
+    MessageHeaders headers;
 
     public Message(String data) {
+        this(null, data, -1);
+    }
+
+    public Message(String key, String data) {
+        this(key, data, -1);
+    }
+
+    public Message(String key, String data, long offset) {
+        this.key = key;
         this.data = data;
+        this.offset = offset;
+    }
+
+    public String getKey() {
+        return this.key;
     }
 
     public String getData() {
         return this.data;
     }
+
+    public long getOffset() {
+        return this.offset;
+    }
+
+    public MessageHeaders getHeaders() {
+        if (this.headers == null) {
+            this.headers = new MessageHeaders();
+        }
+        return this.headers;
+    }
+
+    // Reference counting for messages whose payload gets recycled (see BinaryMessage).
+    // Plain messages are left to the GC, so for them these do nothing.
+    public Message retain() {
+        return this;
+    }
+
+    public void release() {
+    }
+}
+
+// Small string -> string map for message headers ("type", "tenant", "trace-id", ...). Keys
+// and values alternate in one array and lookups scan it: for the handful of headers a
+// message carries that beats a HashMap in both memory (no entry objects or table) and speed.
+class MessageHeaders {
+    private String[] entries = new String[8];
+    private int size;
+    // Values parsed as numbers by getNumber, so range filters parse each header once per
+    // message rather than once per filter. NaN = not a number; null slot = not parsed yet.
+    private Double[] numbers;
+
+    public MessageHeaders put(String name, String value) {
+        for (int i = 0; i < size * 2; i += 2) {
+            if (entries[i].equals(name)) {
+                entries[i + 1] = value;
+                if (numbers != null) {
+                    numbers[i / 2] = null;
+                }
+                return this;
+            }
+        }
+        if (size * 2 == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[size * 2] = name;
+        entries[size * 2 + 1] = value;
+        size++;
+        return this;
+    }
+
+    public String get(String name) {
+        for (int i = 0; i < size * 2; i += 2) {
+            if (entries[i].equals(name)) {
+                return entries[i + 1];
+            }
+        }
+        return null;
+    }
+
+    public double getNumber(String name) {
+        for (int i = 0; i < size; i++) {
+            if (entries[i * 2].equals(name)) {
+                return numberAt(i);
+            }
+        }
+        return Double.NaN;
+    }
+
+    public double numberAt(int index) {
+        if (numbers == null || numbers.length < entries.length / 2) {
+            numbers = numbers == null ? new Double[entries.length / 2] : Arrays.copyOf(numbers, entries.length / 2);
+        }
+        Double number = numbers[index];
+        if (number == null) {
+            number = MessageFilter.parse(entries[index * 2 + 1]);
+            numbers[index] = number;
+        }
+        return number;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String nameAt(int index) {
+        return entries[index * 2];
+    }
+
+    public String valueAt(int index) {
+        return entries[index * 2 + 1];
+    }
+
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < size * 2; i += 2) {
+            action.accept(entries[i], entries[i + 1]);
+        }
+    }
 }
 
 class Topic {
+    private static final Consumer[] NO_CONSUMERS = new Consumer[0];
+
+    // Wildcard subscribers matching this topic, as of a TopicTrie version.
+    private static final class CachedMatch {
+        final long version;
+        final Consumer[] consumers;
+
+        CachedMatch(long version, Consumer[] consumers) {
+            this.version = version;
+            this.consumers = consumers;
+        }
+    }
+
     private String name;
-    private List<Consumer> consumers;
+    // Copy-on-write snapshot: subscribe swaps in a new array and broadcast iterates
+    // whichever one it read, so publishers never lock and never see a half-added consumer.
+    private volatile Consumer[] consumers;
+    // Set for durable topics: every published message is appended here first.
+    private TopicLog log;
+    // How many ways consumer groups split this topic (see ConsumerGroup).
+    private volatile int partitionCount = 1;
+    private final Map<String, ConsumerGroup> groups = new ConcurrentHashMap<>();
+    // Wildcard subscriptions (orders.*, metrics.#) live in the controller's trie; each topic
+    // caches which of them match its name until the trie changes.
+    private TopicTrie wildcards;
+    private volatile CachedMatch wildcardMatch;
+    // Subscriptions with a MessageFilter; created on the first one.
+    private volatile FilterIndex filters;
 
     public Topic(String name) {
+        this(name, null, null);
+    }
+
+    public Topic(String name, TopicLog log) {
+        this(name, log, null);
+    }
+
+    public Topic(String name, TopicLog log, TopicTrie wildcards) {
         this.name = name;
-        this.consumers = new ArrayList<>();
+        this.consumers = new Consumer[0];
+        this.log = log;
+        this.wildcards = wildcards;
+    }
+
+    // Durable topics log the message first and deliver it stamped with its offset, so a
+    // consumer can remember how far it got and resubscribe from there.
+    public void publish(Message message) {
+        if (log == null) {
+            // The publisher's reference to a binary message is ours now; consumers that
+            // keep it past onMessage have retained their own.
+            seal(message);
+            try {
+                broadcast(message);
+            } finally {
+                message.release();
+            }
+            return;
+        }
+        rejectBinary(message);
+        Consumer[] snapshot;
+        long offset;
+        // Append and snapshot together, so a replaying subscribe (below) sees each message
+        // either in the log or as a live delivery, never both or neither. The fsync happens
+        // after the lock, so concurrent publishers can share it.
+        synchronized (this) {
+            offset = log.write(message);
+            snapshot = consumers;
+        }
+        log.commit(offset);
+        Message logged = logged(message, offset);
+        for (Consumer c : snapshot) {
+            c.onMessage(this, logged);
+        }
+        for (Consumer c : wildcardConsumers()) {
+            c.onMessage(this, logged);
+        }
+        for (Consumer c : filteredConsumers(logged)) {
+            c.onMessage(this, logged);
+        }
+    }
+
+    // The delivered copy of a logged message. Headers ride along in memory only: the log
+    // doesn't store them, so a replay delivers messages without headers.
+    private static Message logged(Message message, long offset) {
+        Message logged = new Message(message.getKey(), message.getData(), offset);
+        logged.headers = message.headers;
+        return logged;
+    }
+
+    // One lock, one fsync and one call per BatchConsumer for the whole batch; plain
+    // consumers still get onMessage per message.
+    public void publishBatch(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        if (log == null) {
+            for (Message message : messages) {
+                seal(message);
+            }
+            try {
+                broadcastBatch(messages);
+            } finally {
+                for (Message message : messages) {
+                    message.release();
+                }
+            }
+            return;
+        }
+        for (Message message : messages) {
+            rejectBinary(message);
+        }
+        Consumer[] snapshot;
+        long firstOffset;
+        synchronized (this) {
+            firstOffset = log.write(messages.get(0));
+            for (int i = 1; i < messages.size(); i++) {
+                log.write(messages.get(i));
+            }
+            snapshot = consumers;
+        }
+        log.commit(firstOffset + messages.size() - 1);
+        List<Message> logged = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            logged.add(logged(messages.get(i), firstOffset + i));
+        }
+        deliverBatch(snapshot, logged);
+        deliverBatch(wildcardConsumers(), logged);
+        deliverFiltered(logged);
+    }
+
+    public void broadcastBatch(List<Message> messages) {
+        deliverBatch(consumers, messages);
+        deliverBatch(wildcardConsumers(), messages);
+        deliverFiltered(messages);
+    }
+
+    // Each message can match different filters, so these go one message at a time.
+    private void deliverFiltered(List<Message> messages) {
+        if (filters == null) {
+            return;
+        }
+        for (Message message : messages) {
+            for (Consumer c : filteredConsumers(message)) {
+                c.onMessage(this, message);
+            }
+        }
+    }
+
+    private void deliverBatch(Consumer[] targets, List<Message> messages) {
+        for (Consumer c : targets) {
+            if (c instanceof BatchConsumer) {
+                ((BatchConsumer) c).onMessages(this, messages);
+            } else {
+                for (Message message : messages) {
+                    c.onMessage(this, message);
+                }
+            }
+        }
+    }
+
+    private static void seal(Message message) {
+        if (message instanceof BinaryMessage) {
+            ((BinaryMessage) message).seal();
+        }
+    }
+
+    private void rejectBinary(Message message) {
+        if (message instanceof BinaryMessage) {
+            throw new IllegalArgumentException("Durable topic " + name + " only takes String messages");
+        }
     }
 
     public void broadcast(Message message) {
         for (Consumer c : consumers) {
             c.onMessage(this, message);
         }
+        for (Consumer c : wildcardConsumers()) {
+            c.onMessage(this, message);
+        }
+        for (Consumer c : filteredConsumers(message)) {
+            c.onMessage(this, message);
+        }
+    }
+
+    private Consumer[] filteredConsumers(Message message) {
+        FilterIndex index = filters;
+        return index == null ? NO_CONSUMERS : index.match(message);
+    }
+
+    // Cache hit: two volatile reads. The trie is only walked again after a wildcard
+    // subscription changed somewhere. The version is read before matching, so a change
+    // racing with the walk just makes the next publish match again.
+    private Consumer[] wildcardConsumers() {
+        if (wildcards == null) {
+            return NO_CONSUMERS;
+        }
+        long version = wildcards.getVersion();
+        CachedMatch cached = wildcardMatch;
+        if (cached == null || cached.version != version) {
+            cached = new CachedMatch(version, wildcards.match(name));
+            wildcardMatch = cached;
+        }
+        return cached.consumers;
+    }
+
+    public synchronized void subscribe(Consumer consumer) {
+        Consumer[] current = consumers;
+        Consumer[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = consumer;
+        consumers = next;
+    }
+
+    // Delivers only the messages whose headers match `filter`. The topic checks it from an
+    // index, so subscriptions that don't match cost a publish next to nothing.
+    public synchronized void subscribe(Consumer consumer, MessageFilter filter) {
+        if (filters == null) {
+            filters = new FilterIndex();
+        }
+        filters.subscribe(consumer, filter);
     }
 
-    public void subscribe(Consumer consumer) {
-        consumers.add(consumer);
+    public synchronized void unsubscribe(Consumer consumer) {
+        if (filters != null) {
+            filters.unsubscribe(consumer);
+        }
+        Consumer[] current = consumers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == consumer) {
+                Consumer[] next = new Consumer[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, next.length - i);
+                consumers = next;
+                return;
+            }
+        }
+    }
+
+    // Replays the log from `fromOffset` to the consumer, then keeps it subscribed for live
+    // messages. The bulk of the replay runs without the lock, so publishers only wait for
+    // the last few messages that arrived while it was catching up.
+    public void subscribe(Consumer consumer, long fromOffset) {
+        if (log == null) {
+            throw new IllegalStateException("Topic " + name + " has no log to replay from");
+        }
+        long next = replay(consumer, fromOffset, log.endOffset());
+        synchronized (this) {
+            replay(consumer, next, log.endOffset());
+            subscribe(consumer);
+        }
+    }
+
+    private long replay(Consumer consumer, long from, long to) {
+        long next = from;
+        while (next < to) {
+            List<Message> batch = log.read(next, 1024);
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Message message : batch) {
+                consumer.onMessage(this, message);
+                next = message.getOffset() + 1;
+            }
+        }
+        return next;
+    }
+
+    public TopicLog getLog() {
+        return log;
+    }
+
+    // Same key, same partition, for a given partition count. The spread mixes the high
+    // bits in so keys like "order-1", "order-2" don't pile up on a few partitions.
+    static int partitionFor(String key, int partitionCount) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, partitionCount);
+    }
+
+    // Groups already created keep the count they started with, so a key never moves
+    // partition under a running group.
+    public void setPartitionCount(int partitionCount) {
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("partitionCount must be positive: " + partitionCount);
+        }
+        this.partitionCount = partitionCount;
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public ConsumerGroup joinGroup(String groupId, Consumer consumer, int partitionCapacity) {
+        ConsumerGroup group = groups.get(groupId);
+        if (group == null) {
+            group = groups.computeIfAbsent(groupId, id -> {
+                ConsumerGroup created = new ConsumerGroup(id, this, partitionCount, partitionCapacity);
+                subscribe(created);
+                return created;
+            });
+        }
+        group.join(consumer);
+        return group;
+    }
+
+    public void leaveGroup(String groupId, Consumer consumer) {
+        ConsumerGroup group = groups.get(groupId);
+        if (group != null) {
+            group.leave(consumer);
+        }
+    }
+
+    // Delivers to the consumer from `executor` through a bounded queue, so publishing to
+    // this topic is just an enqueue for it (see AsyncConsumer).
+    public AsyncConsumer subscribeAsync(Consumer consumer, int queueCapacity, OverflowPolicy policy, Executor executor) {
+        AsyncConsumer async = new AsyncConsumer(this, consumer, queueCapacity, policy, executor);
+        subscribe(async);
+        return async;
+    }
+
+    // At-least-once: messages are redelivered until the consumer acks them, and go to
+    // `deadLetters` after maxAttempts (see ReliableConsumer).
+    public ReliableConsumer subscribeReliable(AckingConsumer consumer, long ackTimeoutMillis, int maxAttempts,
+                                              Topic deadLetters, TimingWheel timers, Executor executor) {
+        ReliableConsumer reliable = new ReliableConsumer(this, consumer, ackTimeoutMillis, maxAttempts,
+                deadLetters, timers, executor);
+        subscribe(reliable);
+        return reliable;
+    }
+
+    // One consumer, run in parallel across keys but in order within each key, on up to
+    // maxLanes serial lanes (see KeyOrderedConsumer).
+    public KeyOrderedConsumer subscribeKeyOrdered(Consumer consumer, int maxLanes, int laneCapacity, Executor executor) {
+        KeyOrderedConsumer ordered = new KeyOrderedConsumer(this, consumer, maxLanes, laneCapacity, executor);
+        subscribe(ordered);
+        return ordered;
+    }
+
+    // For hot topics: the consumers read from a preallocated ring on threads of their own,
+    // and a publish costs one slot claim whatever their number (see RingDispatcher).
+    public RingDispatcher subscribeRing(int ringSize, WaitStrategy waitStrategy, Consumer... consumers) {
+        RingDispatcher ring = new RingDispatcher(this, ringSize, waitStrategy, consumers);
+        subscribe(ring);
+        return ring;
+    }
+
+    // The topic as a reactive-streams publisher: subscribers pull with request(n) and a
+    // slow one pushes back on publishers (see TopicFlowPublisher).
+    public TopicFlowPublisher asFlowPublisher(int bufferCapacity, OverflowPolicy policy, Executor executor) {
+        return new TopicFlowPublisher(this, bufferCapacity, policy, executor);
     }
 
     public String getName() {
@@ -46,6 +506,16 @@ interface Consumer {
     void onMessage(Topic topic, Message message);
 }
 
+// A consumer that takes a whole batch in one call. Topics hand it each published batch as
+// is, instead of one onMessage per message; single publishes arrive as a batch of one.
+interface BatchConsumer extends Consumer {
+    void onMessages(Topic topic, List<Message> messages);
+
+    default void onMessage(Topic topic, Message message) {
+        onMessages(topic, List.of(message));
+    }
+}
+
 class BasicConsumer implements Consumer {
 
     public void onMessage(Topic topic, Message message) {
@@ -59,29 +529,218 @@ class BasicPublisher implements Publisher{}
 
 class PubSubController {
     private Map<String, Topic> topics;
+    private Function<String, Topic> newTopic;
+    private TopicTrie wildcards;
+    // Ack deadlines for every reliable subscription; started with the first one.
+    private TimingWheel timers;
+    // Messages published for later; started with the first one (or at startup when a
+    // durable controller finds some left from before a restart).
+    private ScheduledDelivery scheduled;
+    private Path scheduledDirectory;
 
     public PubSubController() {
-        this.topics = new HashMap<>();
+        this.topics = new ConcurrentHashMap<>();
+        this.wildcards = new TopicTrie();
+        this.newTopic = name -> new Topic(name, null, wildcards);
+    }
+
+    // Durable controller: every topic gets a TopicLog under logDirectory/<topic name>, and
+    // reopening the same directory after a restart brings the messages back.
+    public PubSubController(Path logDirectory, long segmentBytes, FsyncPolicy policy, long fsyncIntervalMillis) {
+        this.topics = new ConcurrentHashMap<>();
+        this.wildcards = new TopicTrie();
+        this.newTopic = name -> {
+            try {
+                TopicLog log = new TopicLog(logDirectory.resolve(name), segmentBytes, policy, fsyncIntervalMillis);
+                return new Topic(name, log, wildcards);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        // Next to the topic logs, under a name topics don't use (cf. Kafka's __consumer_offsets).
+        this.scheduledDirectory = logDirectory.resolve("__scheduled");
+        if (Files.isDirectory(scheduledDirectory)) {
+            getScheduled();
+        }
     }
 
+    // Plain get() first: for an existing topic that's a lock-free read with no allocation.
+    // Only the first use of a name reaches computeIfAbsent, which builds exactly one Topic.
     private Topic getOrCreateTopic(String topic_name) {
-        topics.putIfAbsent(topic_name, new Topic(topic_name));
-        return topics.get(topic_name);
+        Topic topic = topics.get(topic_name);
+        if (topic == null) {
+            topic = topics.computeIfAbsent(topic_name, newTopic);
+        }
+        return topic;
     }
 
     public void createTopic(String topic_name) {
-        topics.putIfAbsent(topic_name, new Topic(topic_name));
+        getOrCreateTopic(topic_name);
+    }
+
+    public void createTopic(String topic_name, int partitions) {
+        getOrCreateTopic(topic_name).setPartitionCount(partitions);
+    }
+
+    public Topic getTopic(String topic_name) {
+        return getOrCreateTopic(topic_name);
     }
 
+    // topic_name may be a pattern with * (one segment) or # (any number of segments),
+    // e.g. "orders.*.created" or "metrics.#"; see TopicTrie.
     public void subscribe(Consumer consumer, String topic_name) {
+        if (TopicTrie.isPattern(topic_name)) {
+            wildcards.subscribe(consumer, topic_name);
+            return;
+        }
         Topic topic = getOrCreateTopic(topic_name);
         topic.subscribe(consumer);
     }
 
+    public void unsubscribe(Consumer consumer, String topic_name) {
+        if (TopicTrie.isPattern(topic_name)) {
+            wildcards.unsubscribe(consumer, topic_name);
+            return;
+        }
+        Topic topic = getOrCreateTopic(topic_name);
+        topic.unsubscribe(consumer);
+    }
+
+    public void subscribe(Consumer consumer, String topic_name, MessageFilter filter) {
+        if (TopicTrie.isPattern(topic_name)) {
+            throw new IllegalArgumentException("Filtered subscriptions need a concrete topic: " + topic_name);
+        }
+        Topic topic = getOrCreateTopic(topic_name);
+        topic.subscribe(consumer, filter);
+    }
+
+    public void subscribe(Consumer consumer, String topic_name, long fromOffset) {
+        Topic topic = getOrCreateTopic(topic_name);
+        topic.subscribe(consumer, fromOffset);
+    }
+
+    // Joins `consumer` to a consumer group on the topic: the group's members share the
+    // topic's messages, split by key across the topic's partitions.
+    public ConsumerGroup joinGroup(Consumer consumer, String topic_name, String groupId) {
+        Topic topic = getOrCreateTopic(topic_name);
+        return topic.joinGroup(groupId, consumer, 1024);
+    }
+
+    public void leaveGroup(Consumer consumer, String topic_name, String groupId) {
+        Topic topic = getOrCreateTopic(topic_name);
+        topic.leaveGroup(groupId, consumer);
+    }
+
+    public AsyncConsumer subscribeAsync(Consumer consumer, String topic_name, int queueCapacity,
+                                        OverflowPolicy policy, Executor executor) {
+        Topic topic = getOrCreateTopic(topic_name);
+        return topic.subscribeAsync(consumer, queueCapacity, policy, executor);
+    }
+
+    // Unacked messages are redelivered every ackTimeoutMillis, up to maxAttempts times, and
+    // then published to "<topic_name>.dlq".
+    public ReliableConsumer subscribeReliable(AckingConsumer consumer, String topic_name, long ackTimeoutMillis,
+                                              int maxAttempts, Executor executor) {
+        Topic topic = getOrCreateTopic(topic_name);
+        Topic deadLetters = getOrCreateTopic(topic_name + ".dlq");
+        return topic.subscribeReliable(consumer, ackTimeoutMillis, maxAttempts, deadLetters, getTimers(), executor);
+    }
+
+    private synchronized TimingWheel getTimers() {
+        if (timers == null) {
+            timers = new TimingWheel(10, 512);
+        }
+        return timers;
+    }
+
+    public KeyOrderedConsumer subscribeKeyOrdered(Consumer consumer, String topic_name, int maxLanes,
+                                                  int laneCapacity, Executor executor) {
+        Topic topic = getOrCreateTopic(topic_name);
+        return topic.subscribeKeyOrdered(consumer, maxLanes, laneCapacity, executor);
+    }
+
+    public RingDispatcher subscribeRing(String topic_name, int ringSize, WaitStrategy waitStrategy,
+                                        Consumer... consumers) {
+        Topic topic = getOrCreateTopic(topic_name);
+        return topic.subscribeRing(ringSize, waitStrategy, consumers);
+    }
+
+    public TopicFlowPublisher asFlowPublisher(String topic_name, int bufferCapacity,
+                                              OverflowPolicy policy, Executor executor) {
+        Topic topic = getOrCreateTopic(topic_name);
+        return topic.asFlowPublisher(bufferCapacity, policy, executor);
+    }
+
     public void publish(Publisher producer, String topic_name, Message message) {
         Topic topic = getOrCreateTopic(topic_name);
-        System.out.println("Publishing message..." + message.getData());
-        topic.broadcast(message);
+        if (message instanceof BinaryMessage) {
+            // Not getData(): that would decode (copy) the whole payload just to log it.
+            System.out.println("Publishing binary message..." + ((BinaryMessage) message).getPayloadSize() + " bytes");
+        } else {
+            System.out.println("Publishing message..." + message.getData());
+        }
+        topic.publish(message);
+    }
+
+    // Delivers `message` at deliverAt (epoch millis) instead of now, e.g. for retry backoff
+    // or reminders, to within a 100 ms tick. On a durable controller it survives a restart;
+    // see ScheduledDelivery.
+    public void publish(Publisher producer, String topic_name, Message message, long deliverAt) {
+        if (message instanceof BinaryMessage) {
+            // As in publish(): getData() would throw on one that isn't sealed yet, or decode
+            // it all, before ScheduledDelivery gets to say it doesn't take binary messages.
+            System.out.println("Scheduling binary message..." + ((BinaryMessage) message).getPayloadSize()
+                    + " bytes for " + deliverAt);
+        } else {
+            System.out.println("Scheduling message..." + message.getData() + " for " + deliverAt);
+        }
+        getScheduled().schedule(topic_name, message, deliverAt);
+    }
+
+    private synchronized ScheduledDelivery getScheduled() {
+        if (scheduled == null) {
+            try {
+                scheduled = new ScheduledDelivery(this::deliverScheduled, 100, scheduledDirectory, 64 * 1024 * 1024);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return scheduled;
+    }
+
+    private void deliverScheduled(String topic_name, Message message) {
+        System.out.println("Delivering scheduled message..." + message.getData());
+        getOrCreateTopic(topic_name).publish(message);
+    }
+
+    // One lookup and one log line for the whole batch (see Topic.publishBatch). For lots
+    // of small publishes that don't come in batches already, see BatchingPublisher.
+    public void publishBatch(Publisher producer, String topic_name, List<Message> messages) {
+        Topic topic = getOrCreateTopic(topic_name);
+        System.out.println("Publishing batch of " + messages.size() + " messages...");
+        topic.publishBatch(messages);
+    }
+
+    public void close() throws IOException {
+        TimingWheel closingTimers;
+        ScheduledDelivery closingScheduled;
+        synchronized (this) {
+            closingTimers = timers;
+            closingScheduled = scheduled;
+        }
+        // Outside the lock: closing waits for the tick being delivered, whose consumers may
+        // schedule retries through publish(..., deliverAt) and so need getScheduled().
+        if (closingTimers != null) {
+            closingTimers.close();
+        }
+        if (closingScheduled != null) {
+            closingScheduled.close();
+        }
+        for (Topic topic : topics.values()) {
+            if (topic.getLog() != null) {
+                topic.getLog().close();
+            }
+        }
     }
 }
 
@@ -0,0 +1,111 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Small messages at a high rate, one at a time vs batched, with CONSUMERS batch-aware
+// consumers on the topic:
+//   single      - controller.publish per message: a lookup, a log line and a call per
+//                 consumer for every message
+//   batch-100   - controller.publishBatch with 100 messages at a time
+//   auto        - BatchingPublisher (100 messages or 5ms linger) fed single messages
+// stdout goes to a null stream, so the controller's log line costs its formatting and
+// locking but no terminal I/O.
+//
+// Then the linger: a trickle of messages through BatchingPublisher should each be
+// delivered within about lingerMillis, not wait for a full batch.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.BatchPublishBenchmark
+public class BatchPublishBenchmark {
+
+    private static final int CONSUMERS = 4;
+    private static final int MESSAGES = 1_000_000;
+    private static final int BATCH = 100;
+    private static final long LINGER_MS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        stdout.printf("%-10s %12s %14s %16s%n", "mode", "msgs/s", "deliveries", "calls/message");
+        for (int round = 0; round < 2; round++) {
+            // First round is JIT warm-up, only the second is printed.
+            PrintStream out = round == 0 ? new PrintStream(OutputStream.nullOutputStream()) : stdout;
+            run(out, "single");
+            run(out, "batch-100");
+            run(out, "auto");
+        }
+        linger(stdout);
+        System.setOut(stdout);
+    }
+
+    private static void run(PrintStream out, String mode) {
+        PubSubController controller = new PubSubController();
+        LongAdder delivered = new LongAdder();
+        LongAdder calls = new LongAdder();
+        for (int i = 0; i < CONSUMERS; i++) {
+            controller.subscribe((BatchConsumer) (topic, messages) -> {
+                calls.increment();
+                delivered.add(messages.size());
+            }, "events");
+        }
+        Publisher publisher = new BasicPublisher();
+
+        long start = System.nanoTime();
+        if (mode.equals("single")) {
+            for (int i = 0; i < MESSAGES; i++) {
+                controller.publish(publisher, "events", new Message("e" + i));
+            }
+        } else if (mode.equals("batch-100")) {
+            for (int i = 0; i < MESSAGES; i += BATCH) {
+                List<Message> batch = new ArrayList<>(BATCH);
+                for (int j = 0; j < BATCH; j++) {
+                    batch.add(new Message("e" + (i + j)));
+                }
+                controller.publishBatch(publisher, "events", batch);
+            }
+        } else {
+            try (BatchingPublisher batching = new BatchingPublisher(controller, "events", BATCH, LINGER_MS)) {
+                for (int i = 0; i < MESSAGES; i++) {
+                    batching.publish(new Message("e" + i));
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        if (delivered.sum() != (long) MESSAGES * CONSUMERS) {
+            throw new IllegalStateException(mode + ": delivered " + delivered.sum());
+        }
+        out.printf("%-10s %12.0f %14d %16.3f%n", mode, MESSAGES / seconds, delivered.sum(),
+                calls.sum() / (double) MESSAGES);
+    }
+
+    private static void linger(PrintStream stdout) throws InterruptedException {
+        PubSubController controller = new PubSubController();
+        long[] sentAt = new long[20];
+        long[] delays = new long[20];
+        int[] received = new int[1];
+        controller.subscribe((BatchConsumer) (topic, messages) -> {
+            for (Message message : messages) {
+                int i = Integer.parseInt(message.getData());
+                delays[i] = System.nanoTime() - sentAt[i];
+                received[0]++;
+            }
+        }, "events");
+
+        try (BatchingPublisher batching = new BatchingPublisher(controller, "events", BATCH, LINGER_MS)) {
+            for (int i = 0; i < sentAt.length; i++) {
+                sentAt[i] = System.nanoTime();
+                batching.publish(new Message(String.valueOf(i)));
+                Thread.sleep(3 * LINGER_MS);
+            }
+        }
+        Arrays.sort(delays);
+        stdout.printf("trickle through BatchingPublisher: %d messages, delay median %.1f ms, max %.1f ms (linger %d ms)%n",
+                received[0], delays[delays.length / 2] / 1e6, delays[delays.length - 1] / 1e6, LINGER_MS);
+    }
+}
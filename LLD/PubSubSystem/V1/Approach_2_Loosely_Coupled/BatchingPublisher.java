@@ -0,0 +1,130 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Turns a stream of single publishes into PubSubController.publishBatch calls, like a
+// Kafka producer's batch.size / linger.ms: messages collect in a buffer that is sent when
+// it reaches maxBatchSize, or lingerMillis after its first message, whichever comes first.
+// A full batch goes out on the publishing thread; a lingering one from a timer thread.
+//
+// The linger bounds the extra latency batching adds; the batch size bounds memory and how
+// long a consumer's onMessages call runs. Call flush() to send what's buffered now, and
+// close() when done so the last partial batch isn't lost.
+class BatchingPublisher implements Publisher, AutoCloseable {
+    private final PubSubController controller;
+    private final String topic_name;
+    private final int maxBatchSize;
+    private final long lingerMillis;
+    private final ScheduledExecutorService timer;
+
+    private List<Message> buffer;
+    // Bumped every time a batch is sent, so a linger timer armed for an earlier batch
+    // doesn't flush the next one early.
+    private long batchId;
+    // Batches taken from the buffer, in order, waiting for send(). Guarded by this.
+    private final ArrayDeque<List<Message>> toSend = new ArrayDeque<>();
+    private final Object sendLock = new Object();
+    private boolean closed;
+
+    public BatchingPublisher(PubSubController controller, String topic_name, int maxBatchSize, long lingerMillis) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.controller = controller;
+        this.topic_name = topic_name;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMillis = lingerMillis;
+        this.buffer = new ArrayList<>(maxBatchSize);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "batching-publisher-" + topic_name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void publish(Message message) {
+        boolean full = false;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("BatchingPublisher for " + topic_name + " is closed");
+            }
+            buffer.add(message);
+            if (buffer.size() >= maxBatchSize) {
+                takeBuffer();
+                full = true;
+            } else if (buffer.size() == 1) {
+                long armedFor = batchId;
+                timer.schedule(() -> flushIfStill(armedFor), lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        // Sent outside the lock so other publishers can keep filling the next batch.
+        if (full) {
+            send();
+        }
+    }
+
+    public void flush() {
+        synchronized (this) {
+            if (!buffer.isEmpty()) {
+                takeBuffer();
+            }
+        }
+        send();
+    }
+
+    // Later publishes throw; what's buffered is sent first.
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!buffer.isEmpty()) {
+                takeBuffer();
+            }
+        }
+        timer.shutdownNow();
+        send();
+    }
+
+    private void flushIfStill(long armedFor) {
+        synchronized (this) {
+            if (batchId != armedFor || buffer.isEmpty()) {
+                return;
+            }
+            takeBuffer();
+        }
+        send();
+    }
+
+    private void takeBuffer() {
+        toSend.add(buffer);
+        buffer = new ArrayList<>(maxBatchSize);
+        batchId++;
+    }
+
+    // Batches go out one at a time, in the order they were taken, whichever thread sends
+    // them: otherwise a linger flush on the timer thread could be overtaken by a full batch
+    // from a publisher, reordering messages of the same key. Whoever holds sendLock sends
+    // everything queued, including batches other threads took meanwhile.
+    private void send() {
+        synchronized (sendLock) {
+            while (true) {
+                List<Message> batch;
+                synchronized (this) {
+                    batch = toSend.poll();
+                }
+                if (batch == null) {
+                    return;
+                }
+                controller.publishBatch(this, topic_name, batch);
+            }
+        }
+    }
+}
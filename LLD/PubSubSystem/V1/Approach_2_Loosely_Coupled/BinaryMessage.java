@@ -0,0 +1,110 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A message whose payload is bytes in a ByteBuffer (heap or direct) rather than a String,
+// usually taken from a BufferPool.
+//
+// Fan-out shares the one buffer: every consumer of the topic gets this same object and
+// nothing is copied. getPayload() is one read-only view, made when the message is published
+// and shared by every consumer, so read it with absolute gets (get(i), getLong(i)), or
+// duplicate() it first to read with a position of your own. Since
+// the buffer goes back to the pool for reuse, who may still read it is tracked with a
+// reference count:
+//   - the publisher owns one reference, and publishing hands it to the topic, which
+//     releases it once every consumer's onMessage has returned;
+//   - during onMessage a consumer can read the message freely. To keep it past that
+//     (queue it, hand it to another thread) it calls retain(), and release() when done -
+//     that release is its ack;
+//   - when the count reaches zero the buffer returns to the pool and the payload can no
+//     longer be read.
+// AsyncConsumer, ConsumerGroup and TopicFlowPublisher retain what they queue and release it
+// after delivery, so consumers behind them follow the same onMessage-only rule.
+//
+// Durable topics don't take binary messages (TopicLog stores String data).
+class BinaryMessage extends Message {
+    private final BufferPool pool;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private volatile ByteBuffer buffer;
+    private ByteBuffer payload;
+    private boolean sealed;
+
+    // pool may be null for a buffer that isn't pooled.
+    public BinaryMessage(String key, ByteBuffer buffer, BufferPool pool) {
+        super(key, null);
+        this.buffer = buffer;
+        this.pool = pool;
+    }
+
+    // Where the publisher writes the payload, from position 0. Only until it's published.
+    public ByteBuffer writeBuffer() {
+        if (sealed) {
+            throw new IllegalStateException("Message was already published");
+        }
+        return buffer;
+    }
+
+    // Ends writing: the payload is what was written so far. Topics call this on publish.
+    void seal() {
+        if (!sealed) {
+            buffer.flip();
+            payload = buffer.asReadOnlyBuffer();
+            sealed = true;
+        }
+    }
+
+    // Shared by all readers: absolute gets only, or duplicate() it.
+    public ByteBuffer getPayload() {
+        if (!sealed) {
+            throw new IllegalStateException("Message isn't published yet");
+        }
+        if (buffer == null) {
+            throw new IllegalStateException("Message was released");
+        }
+        return payload;
+    }
+
+    public int getPayloadSize() {
+        return sealed ? buffer.limit() : buffer.position();
+    }
+
+    // For consumers written against String messages: decodes the payload as UTF-8, which
+    // copies it. Binary-aware consumers should read getPayload() instead.
+    @Override
+    public String getData() {
+        return StandardCharsets.UTF_8.decode(getPayload().duplicate()).toString();
+    }
+
+    @Override
+    public Message retain() {
+        int current;
+        do {
+            current = refCount.get();
+            if (current <= 0) {
+                throw new IllegalStateException("Message was already released");
+            }
+        } while (!refCount.compareAndSet(current, current + 1));
+        return this;
+    }
+
+    @Override
+    public void release() {
+        int remaining = refCount.decrementAndGet();
+        if (remaining == 0) {
+            ByteBuffer done = buffer;
+            buffer = null;
+            payload = null;
+            if (pool != null) {
+                pool.release(done);
+            }
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Message released more times than retained");
+        }
+    }
+
+    public int refCount() {
+        return refCount.get();
+    }
+}
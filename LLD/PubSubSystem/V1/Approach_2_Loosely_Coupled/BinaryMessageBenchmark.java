@@ -0,0 +1,144 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+// PAYLOAD-byte events fanned out to CONSUMERS subscribers that each read a few of its bytes:
+//   string        - the event bytes turned into a String Message (what every publisher has
+//                   to do today); consumers read the String
+//   binary heap   - BinaryMessage in a pooled heap buffer; consumers read the shared payload
+//   binary direct - same with pooled direct buffers
+// Allocation is measured on the publishing thread, which also runs the (synchronous)
+// consumers, so it covers the whole fan-out.
+//
+// Then a fan-out that includes AsyncConsumers, to check every buffer goes back to the pool
+// once the last consumer, sync or async, is done with it.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.BinaryMessageBenchmark
+public class BinaryMessageBenchmark {
+
+    private static final int PAYLOAD = 512;
+    private static final int CONSUMERS = 8;
+    private static final int MESSAGES = 500_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()) {
+            @Override
+            public void println(String line) {
+            }
+        });
+
+        stdout.printf("%-14s %12s %14s %8s %12s%n", "mode", "msgs/s", "bytes/message", "GCs", "buffers new");
+        // Each mode gets a warm-up run right before the measured one.
+        PrintStream warmUp = new PrintStream(OutputStream.nullOutputStream());
+        run(warmUp, "string", null);
+        run(stdout, "string", null);
+        run(warmUp, "binary heap", new BufferPool(PAYLOAD, 64, false));
+        run(stdout, "binary heap", new BufferPool(PAYLOAD, 64, false));
+        run(warmUp, "binary direct", new BufferPool(PAYLOAD, 64, true));
+        run(stdout, "binary direct", new BufferPool(PAYLOAD, 64, true));
+        checkRelease(stdout);
+        System.setOut(stdout);
+    }
+
+    private static void run(PrintStream out, String mode, BufferPool pool) {
+        PubSubController controller = new PubSubController();
+        LongAdder checksum = new LongAdder();
+        for (int i = 0; i < CONSUMERS; i++) {
+            controller.subscribe((topic, message) -> {
+                long sum = 0;
+                if (message instanceof BinaryMessage) {
+                    ByteBuffer payload = ((BinaryMessage) message).getPayload();
+                    sum += payload.get(0) + payload.get(64) + payload.get(128) + payload.get(payload.limit() - 1);
+                } else {
+                    String data = message.getData();
+                    sum += data.charAt(0) + data.charAt(64) + data.charAt(128) + data.charAt(data.length() - 1);
+                }
+                checksum.add(sum);
+            }, "events");
+        }
+
+        byte[] event = new byte[PAYLOAD];
+        for (int i = 0; i < PAYLOAD; i++) {
+            event[i] = (byte) ('a' + i % 26);
+        }
+        Publisher publisher = new BasicPublisher();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long gcsBefore = gcCount();
+        long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            event[0] = (byte) ('a' + i % 26);
+            if (pool == null) {
+                controller.publish(publisher, "events", new Message(new String(event, StandardCharsets.UTF_8)));
+            } else {
+                BinaryMessage message = pool.message(null, PAYLOAD);
+                message.writeBuffer().put(event);
+                message.getHeaders().put("type", "click");
+                controller.publish(publisher, "events", message);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        if (checksum.sum() == 0) {
+            throw new IllegalStateException("Consumers saw nothing");
+        }
+        out.printf("%-14s %12.0f %14.0f %8d %12s%n", mode, MESSAGES / seconds, allocated / (double) MESSAGES,
+                gcCount() - gcsBefore, pool == null ? "-" : String.valueOf(pool.getAllocated()));
+    }
+
+    private static void checkRelease(PrintStream stdout) throws InterruptedException {
+        PubSubController controller = new PubSubController();
+        BufferPool pool = new BufferPool(PAYLOAD, 1024, true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        LongAdder seen = new LongAdder();
+        Consumer reader = (topic, message) -> {
+            ((BinaryMessage) message).getPayload().get(0);
+            seen.increment();
+        };
+        controller.subscribe(reader, "events");
+        controller.subscribe(reader, "events");
+        AsyncConsumer slow = controller.subscribeAsync((topic, message) -> {
+            ((BinaryMessage) message).getPayload().get(0);
+            seen.increment();
+        }, "events", 1024, OverflowPolicy.BLOCK, executor);
+        AsyncConsumer dropping = controller.subscribeAsync(reader, "events", 4, OverflowPolicy.DROP_OLDEST, executor);
+
+        int messages = 20_000;
+        Publisher publisher = new BasicPublisher();
+        for (int i = 0; i < messages; i++) {
+            BinaryMessage message = pool.message("k" + i, 64);
+            message.writeBuffer().putInt(i);
+            controller.publish(publisher, "events", message);
+        }
+        while (slow.getQueueDepth() > 0 || dropping.getQueueDepth() > 0) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        executor.shutdown();
+
+        if (pool.getAllocated() + pool.getReused() != messages || pool.getOutstanding() != 0) {
+            throw new IllegalStateException("Buffers leaked: " + pool.getOutstanding() + " never released");
+        }
+        stdout.printf("release: %d messages to 2 sync + 2 async consumers (%d deliveries, %d dropped), "
+                        + "%d buffers allocated, %d reused, 0 outstanding%n",
+                messages, seen.sum(), dropping.getDropped(), pool.getAllocated(), pool.getReused());
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,81 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed-size ByteBuffers for BinaryMessage payloads, reused instead of allocated per message.
+// A buffer comes back here when the last reference to its message is released, and the next
+// acquire() hands it out again, so a steady stream of messages allocates (almost) nothing.
+//
+// Direct buffers live outside the heap (no GC pressure, and the JDK can write them to a
+// channel without copying) but are slow to allocate, which pooling hides. At most maxPooled
+// idle buffers are kept; beyond that released buffers are left to the GC, so a burst doesn't
+// pin its peak memory forever. A payload bigger than bufferSize gets a one-off buffer that
+// isn't pooled.
+class BufferPool {
+    private final int bufferSize;
+    private final boolean direct;
+    private final ArrayBlockingQueue<ByteBuffer> free;
+
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder released = new LongAdder();
+
+    public BufferPool(int bufferSize, int maxPooled, boolean direct) {
+        if (bufferSize <= 0 || maxPooled <= 0) {
+            throw new IllegalArgumentException("bufferSize and maxPooled must be positive: " + bufferSize + ", " + maxPooled);
+        }
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.free = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    // A cleared buffer with at least `size` bytes of room.
+    public ByteBuffer acquire(int size) {
+        if (size <= bufferSize) {
+            ByteBuffer buffer = free.poll();
+            if (buffer != null) {
+                reused.increment();
+                return buffer;
+            }
+        }
+        allocated.increment();
+        int capacity = Math.max(size, bufferSize);
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    public void release(ByteBuffer buffer) {
+        released.increment();
+        if (buffer.capacity() != bufferSize || buffer.isDirect() != direct) {
+            return;
+        }
+        buffer.clear();
+        free.offer(buffer);
+    }
+
+    public BinaryMessage message(String key, int size) {
+        return new BinaryMessage(key, acquire(size), this);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getIdle() {
+        return free.size();
+    }
+
+    public long getAllocated() {
+        return allocated.sum();
+    }
+
+    public long getReused() {
+        return reused.sum();
+    }
+
+    // Buffers handed out and not released yet: in messages still being published or read.
+    public long getOutstanding() {
+        return allocated.sum() + reused.sum() - released.sum();
+    }
+}
@@ -0,0 +1,192 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Consumers that split a topic's messages between them instead of each getting all of
+// them, like a Kafka consumer group. To the topic the group is just one more subscriber;
+// inside it, each message goes to the partition its key hashes to (Topic.partitionFor),
+// and each partition is owned by exactly one member at a time.
+//
+// Every member has its own thread that drains the partitions assigned to it, so members
+// work in parallel, and one member's onMessage is never called concurrently. Ordering per
+// key holds because a key always maps to the same partition and a partition is drained by
+// one thread at a time: on a rebalance the new owner can't start on a partition until the
+// old one has let go of it (the `draining` flag), and the old one checks ownership before
+// every message.
+//
+// Partitions are assigned round robin over the members (partition p -> member p % n) on
+// every join and leave. With more members than partitions the extra members sit idle.
+// While a group has no members its partitions fill up, and once full, publishing to the
+// topic blocks: the group would rather slow producers than drop anything.
+class ConsumerGroup implements Consumer {
+    // Messages drained from one partition before moving on to the member's next one.
+    private static final int DRAIN_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final class Member implements Runnable {
+        final Consumer consumer;
+        final Thread thread;
+        volatile boolean running = true;
+
+        Member(Consumer consumer, int id) {
+            this.consumer = consumer;
+            this.thread = new Thread(this, "group-" + groupId + "-member-" + id);
+            this.thread.setDaemon(true);
+        }
+
+        public void run() {
+            while (running) {
+                boolean worked = false;
+                Member[] current = owners;
+                for (int p = 0; p < current.length; p++) {
+                    if (current[p] == this && draining.compareAndSet(p, 0, 1)) {
+                        try {
+                            worked |= drain(p);
+                        } finally {
+                            draining.set(p, 0);
+                        }
+                    }
+                }
+                if (!worked) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        private boolean drain(int partition) {
+            ArrayBlockingQueue<Message> queue = partitions[partition];
+            int budget = DRAIN_BATCH;
+            Message message;
+            boolean worked = false;
+            while (budget-- > 0 && owners[partition] == this && (message = queue.poll()) != null) {
+                try {
+                    consumer.onMessage(topic, message);
+                } catch (RuntimeException e) {
+                    // Skip it rather than stall the partition forever.
+                } finally {
+                    message.release();
+                }
+                worked = true;
+            }
+            return worked;
+        }
+    }
+
+    private final String groupId;
+    private final Topic topic;
+    private final ArrayBlockingQueue<Message>[] partitions;
+    private final AtomicIntegerArray draining;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    private final List<Member> members = new ArrayList<>();
+    private int nextMemberId;
+    // partition -> owning member; replaced as a whole on rebalance.
+    private volatile Member[] owners;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConsumerGroup(String groupId, Topic topic, int partitionCount, int partitionCapacity) {
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("partitionCount must be positive: " + partitionCount);
+        }
+        this.groupId = groupId;
+        this.topic = topic;
+        this.partitions = new ArrayBlockingQueue[partitionCount];
+        for (int p = 0; p < partitionCount; p++) {
+            partitions[p] = new ArrayBlockingQueue<>(partitionCapacity);
+        }
+        this.draining = new AtomicIntegerArray(partitionCount);
+        this.owners = new Member[partitionCount];
+    }
+
+    // Called on the publisher's thread.
+    public void onMessage(Topic topic, Message message) {
+        int p = message.getKey() == null
+                ? Math.floorMod(roundRobin.getAndIncrement(), partitions.length)
+                : Topic.partitionFor(message.getKey(), partitions.length);
+        // Retained while it waits in the partition: the topic lets go once this returns.
+        message.retain();
+        try {
+            partitions[p].put(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            message.release();
+            throw new IllegalStateException("Interrupted while partition " + p + " of group " + groupId + " was full", e);
+        }
+        Member owner = owners[p];
+        if (owner != null) {
+            LockSupport.unpark(owner.thread);
+        }
+    }
+
+    public synchronized void join(Consumer consumer) {
+        Member member = new Member(consumer, nextMemberId++);
+        members.add(member);
+        rebalance();
+        member.thread.start();
+    }
+
+    public synchronized void leave(Consumer consumer) {
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            if (member.consumer == consumer) {
+                members.remove(i);
+                member.running = false;
+                rebalance();
+                LockSupport.unpark(member.thread);
+                return;
+            }
+        }
+    }
+
+    private void rebalance() {
+        Member[] next = new Member[partitions.length];
+        if (!members.isEmpty()) {
+            for (int p = 0; p < next.length; p++) {
+                next[p] = members.get(p % members.size());
+            }
+        }
+        owners = next;
+        for (Member member : members) {
+            LockSupport.unpark(member.thread);
+        }
+    }
+
+    // Member -> partitions it owns, in join order.
+    public synchronized Map<Consumer, List<Integer>> getAssignment() {
+        Map<Consumer, List<Integer>> assignment = new LinkedHashMap<>();
+        for (Member member : members) {
+            assignment.put(member.consumer, new ArrayList<>());
+        }
+        Member[] current = owners;
+        for (int p = 0; p < current.length; p++) {
+            if (current[p] != null) {
+                assignment.get(current[p].consumer).add(p);
+            }
+        }
+        return assignment;
+    }
+
+    public int getLag() {
+        int lag = 0;
+        for (ArrayBlockingQueue<Message> partition : partitions) {
+            lag += partition.size();
+        }
+        return lag;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+}
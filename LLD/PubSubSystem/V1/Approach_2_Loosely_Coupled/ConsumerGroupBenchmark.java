@@ -0,0 +1,131 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Consumption throughput of one consumer group as it grows, on a topic with PARTITIONS
+// partitions. Each message takes WORK_MS to handle (think a DB write), so one member tops
+// out around 1000 / WORK_MS messages/s and the group should scale about linearly up to
+// PARTITIONS members, then flatten: extra members get no partition.
+//
+// Every run also checks ordering: messages carry a per-key sequence number and must be
+// seen in sequence for each key. The last run adds and removes members while messages
+// are flowing, to check that a rebalance doesn't reorder a key either.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.ConsumerGroupBenchmark
+public class ConsumerGroupBenchmark {
+
+    private static final int PARTITIONS = 8;
+    private static final int KEYS = 200;
+    private static final int MESSAGES = 1_600;
+    private static final long WORK_MS = 1;
+
+    // Counts messages and checks each key's sequence numbers arrive in order.
+    static class OrderCheckingConsumer implements Consumer {
+        final Map<String, Integer> lastSeen;
+        final AtomicInteger consumed;
+
+        OrderCheckingConsumer(Map<String, Integer> lastSeen, AtomicInteger consumed) {
+            this.lastSeen = lastSeen;
+            this.consumed = consumed;
+        }
+
+        public void onMessage(Topic topic, Message message) {
+            // sleep, not parkNanos: the group unparks member threads to signal new messages,
+            // which would cut a park short.
+            try {
+                Thread.sleep(WORK_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            int seq = Integer.parseInt(message.getData());
+            Integer previous = lastSeen.put(message.getKey(), seq);
+            if (seq != (previous == null ? 0 : previous + 1)) {
+                throw new IllegalStateException("Key " + message.getKey() + " got " + seq + " after " + previous);
+            }
+            consumed.incrementAndGet();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()) {
+            @Override
+            public void println(String line) {
+            }
+        });
+
+        stdout.printf("%-8s %10s %12s%n", "members", "msgs/s", "speedup");
+        double single = 0;
+        for (int members = 1; members <= 2 * PARTITIONS; members *= 2) {
+            double rate = run(members, false);
+            single = members == 1 ? rate : single;
+            stdout.printf("%-8d %10.0f %11.1fx%n", members, rate, rate / single);
+        }
+        double rate = run(4, true);
+        stdout.printf("%-8s %10.0f   (4 members, joins and leaves during the run, order kept)%n", "churn", rate);
+        System.setOut(stdout);
+    }
+
+    private static double run(int memberCount, boolean churn) throws InterruptedException {
+        PubSubController controller = new PubSubController();
+        controller.createTopic("orders", PARTITIONS);
+        Map<String, Integer> lastSeen = new ConcurrentHashMap<>();
+        AtomicInteger consumed = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+
+        List<Consumer> members = new ArrayList<>();
+        ConsumerGroup group = null;
+        for (int i = 0; i < memberCount; i++) {
+            Consumer member = failureCounting(new OrderCheckingConsumer(lastSeen, consumed), failures);
+            members.add(member);
+            group = controller.joinGroup(member, "orders", "billing");
+        }
+
+        Publisher publisher = new BasicPublisher();
+        int[] sequence = new int[KEYS];
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            int key = i % KEYS;
+            controller.publish(publisher, "orders", new Message("order-" + key, String.valueOf(sequence[key]++)));
+        }
+
+        Consumer extra = null;
+        while (consumed.get() + failures.get() < MESSAGES) {
+            if (churn && extra == null && consumed.get() > MESSAGES / 4) {
+                extra = failureCounting(new OrderCheckingConsumer(lastSeen, consumed), failures);
+                controller.joinGroup(extra, "orders", "billing");
+                controller.leaveGroup(members.get(0), "orders", "billing");
+            }
+            Thread.sleep(1);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (Consumer member : members) {
+            controller.leaveGroup(member, "orders", "billing");
+        }
+        if (extra != null) {
+            controller.leaveGroup(extra, "orders", "billing");
+        }
+        if (failures.get() > 0 || group.getLag() > 0) {
+            throw new IllegalStateException(failures.get() + " messages out of order, lag " + group.getLag());
+        }
+        return MESSAGES / seconds;
+    }
+
+    // The group swallows consumer exceptions, so count them here to fail the run.
+    private static Consumer failureCounting(Consumer consumer, AtomicInteger failures) {
+        return (topic, message) -> {
+            try {
+                consumer.onMessage(topic, message);
+            } catch (IllegalStateException e) {
+                failures.incrementAndGet();
+            }
+        };
+    }
+}
@@ -0,0 +1,151 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Durable topics end to end:
+//   1. PUBLISHERS threads publish to a durable topic under each fsync policy; with ALWAYS,
+//      group commit should need far fewer fsyncs than messages.
+//   2. The controller is closed and reopened on the same directory (a restart). A consumer
+//      that remembers its offset resubscribes from the middle and must get every message
+//      from there on exactly once, in offset order, then keep getting live ones.
+//   3. Garbage is appended to the last segment (a torn write from a crash); reopening must
+//      drop it and keep every complete message.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.DurableTopicDemo
+public class DurableTopicDemo {
+
+    private static final int PUBLISHERS = 8;
+    private static final int MESSAGES_PER_PUBLISHER = 1_000;
+    private static final long SEGMENT_BYTES = 64 * 1024;
+
+    // Remembers where it got to, like a Kafka consumer committing its offset.
+    static class TrackingConsumer implements Consumer {
+        final List<Long> offsets = new ArrayList<>();
+        long nextOffset;
+
+        TrackingConsumer(long nextOffset) {
+            this.nextOffset = nextOffset;
+        }
+
+        public synchronized void onMessage(Topic topic, Message message) {
+            offsets.add(message.getOffset());
+            nextOffset = message.getOffset() + 1;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()) {
+            @Override
+            public void println(String line) {
+            }
+        });
+        Path root = Files.createTempDirectory("pubsub-log");
+        try {
+            stdout.printf("%-9s %10s %12s %8s %9s%n", "policy", "messages", "msgs/s", "fsyncs", "segments");
+            for (FsyncPolicy policy : FsyncPolicy.values()) {
+                publishAll(stdout, root.resolve(policy.name()), policy);
+            }
+            restartAndReplay(stdout, root.resolve("ALWAYS"));
+            tornWrite(stdout, root.resolve("ALWAYS"));
+        } finally {
+            System.setOut(stdout);
+            deleteRecursively(root);
+        }
+    }
+
+    private static void publishAll(PrintStream stdout, Path dir, FsyncPolicy policy) throws Exception {
+        PubSubController controller = new PubSubController(dir, SEGMENT_BYTES, policy, 5);
+        Publisher publisher = new BasicPublisher();
+
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < PUBLISHERS; t++) {
+            int id = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < MESSAGES_PER_PUBLISHER; i++) {
+                    controller.publish(publisher, "orders", new Message("order " + id + "-" + i));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        TopicLog log = topicLog(controller);
+        stdout.printf("%-9s %10d %12.0f %8d %9d%n", policy, log.endOffset(),
+                log.endOffset() / seconds, log.getSyncCount(), log.segmentCount());
+        controller.close();
+    }
+
+    private static void restartAndReplay(PrintStream stdout, Path dir) throws Exception {
+        long total = PUBLISHERS * MESSAGES_PER_PUBLISHER;
+        PubSubController controller = new PubSubController(dir, SEGMENT_BYTES, FsyncPolicy.ALWAYS, 5);
+
+        TrackingConsumer consumer = new TrackingConsumer(total / 2);
+        controller.subscribe(consumer, "orders", consumer.nextOffset);
+        for (int i = 0; i < 10; i++) {
+            controller.publish(new BasicPublisher(), "orders", new Message("after restart " + i));
+        }
+
+        long expected = total / 2;
+        for (long offset : consumer.offsets) {
+            if (offset != expected++) {
+                throw new IllegalStateException("Replay out of order or with gaps at offset " + offset);
+            }
+        }
+        if (expected != total + 10) {
+            throw new IllegalStateException("Expected offsets up to " + (total + 10) + ", got up to " + expected);
+        }
+        stdout.printf("restart: replayed from %d, got %d messages in order, next offset %d%n",
+                total / 2, consumer.offsets.size(), consumer.nextOffset);
+        controller.close();
+    }
+
+    private static void tornWrite(PrintStream stdout, Path dir) throws Exception {
+        Path last;
+        try (Stream<Path> files = Files.list(dir.resolve("orders"))) {
+            last = files.max(Comparator.naturalOrder()).orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.APPEND)) {
+            // A length header promising more bytes than were ever written.
+            channel.write(ByteBuffer.allocate(6).putInt(1_000).putShort((short) 7).flip());
+        }
+
+        PubSubController controller = new PubSubController(dir, SEGMENT_BYTES, FsyncPolicy.ALWAYS, 5);
+        TopicLog log = topicLog(controller);
+        long end = log.endOffset();
+        List<Message> tail = log.read(end - 1, 10);
+        stdout.printf("torn write: recovered to offset %d, last message \"%s\"%n", end, tail.get(0).getData());
+        if (end != PUBLISHERS * MESSAGES_PER_PUBLISHER + 10) {
+            throw new IllegalStateException("Lost complete messages while recovering: " + end);
+        }
+        controller.close();
+    }
+
+    private static TopicLog topicLog(PubSubController controller) {
+        return controller.getTopic("orders").getLog();
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A topic's filtered subscriptions (MessageFilter), compiled into indexes over header
+// values so a publish only looks at subscriptions that can match it.
+//
+// Each subscription is filed under one "access" predicate, the most selective it has:
+//   eq / in  - a hash map header value -> subscriptions, per header name (an in() is filed
+//              under each of its values)
+//   range    - an interval tree per header name, which finds the ranges containing a value
+//              in O(log n + hits)
+//   none     - no predicates at all: checked on every publish
+// A publish looks up each of its headers in these indexes, and only the subscriptions
+// found there have their remaining predicates checked. With selective filters, the cost
+// follows the number of subscriptions that match rather than the number that exist.
+//
+// The compiled indexes are immutable and rebuilt on the first publish after a
+// subscription changed, so publishes never lock and churn costs one rebuild, not one
+// per change.
+class FilterIndex {
+    private static final Consumer[] NO_CONSUMERS = new Consumer[0];
+
+    private static final class Entry {
+        final Consumer consumer;
+        final MessageFilter.Predicate access;
+        final MessageFilter.Predicate[] rest;
+
+        Entry(Consumer consumer, MessageFilter.Predicate access, MessageFilter.Predicate[] rest) {
+            this.consumer = consumer;
+            this.access = access;
+            this.rest = rest;
+        }
+
+        boolean restMatches(MessageHeaders headers) {
+            for (MessageFilter.Predicate predicate : rest) {
+                if (!predicate.test(headers)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Finds the [min, max] ranges containing a value. Each node keeps the ranges that
+    // contain its center, sorted by min and by max, so a lookup stops scanning a node at the
+    // first range that can't contain the value; ranges wholly left or right of the center
+    // go to the subtrees.
+    private static final class IntervalTree {
+        final double center;
+        final Entry[] byMin;
+        final Entry[] byMaxDescending;
+        final IntervalTree left;
+        final IntervalTree right;
+
+        private IntervalTree(double center, List<Entry> here, IntervalTree left, IntervalTree right) {
+            this.center = center;
+            this.byMin = here.toArray(new Entry[0]);
+            Arrays.sort(byMin, Comparator.comparingDouble(e -> e.access.min));
+            this.byMaxDescending = here.toArray(new Entry[0]);
+            Arrays.sort(byMaxDescending, Comparator.comparingDouble((Entry e) -> e.access.max).reversed());
+            this.left = left;
+            this.right = right;
+        }
+
+        // Center on the median min: the range it came from stays at this node, so both
+        // subtrees are smaller and the tree stays about log n deep.
+        static IntervalTree build(List<Entry> entries) {
+            if (entries.isEmpty()) {
+                return null;
+            }
+            double[] mins = new double[entries.size()];
+            for (int i = 0; i < mins.length; i++) {
+                mins[i] = entries.get(i).access.min;
+            }
+            Arrays.sort(mins);
+            double center = mins[mins.length / 2];
+            List<Entry> here = new ArrayList<>();
+            List<Entry> left = new ArrayList<>();
+            List<Entry> right = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (entry.access.max < center) {
+                    left.add(entry);
+                } else if (entry.access.min > center) {
+                    right.add(entry);
+                } else {
+                    here.add(entry);
+                }
+            }
+            return new IntervalTree(center, here, build(left), build(right));
+        }
+
+        void stab(double x, List<Entry> out) {
+            IntervalTree node = this;
+            while (node != null) {
+                if (x < node.center) {
+                    for (Entry entry : node.byMin) {
+                        if (entry.access.min > x) {
+                            break;
+                        }
+                        out.add(entry);
+                    }
+                    node = node.left;
+                } else if (x > node.center) {
+                    for (Entry entry : node.byMaxDescending) {
+                        if (entry.access.max < x) {
+                            break;
+                        }
+                        out.add(entry);
+                    }
+                    node = node.right;
+                } else {
+                    out.addAll(Arrays.asList(node.byMin));
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Compiled {
+        final Map<String, Map<String, Entry[]>> byValue = new HashMap<>();
+        final Map<String, IntervalTree> byRange = new HashMap<>();
+        final Entry[] unfiltered;
+
+        Compiled(List<Entry> entries) {
+            Map<String, Map<String, List<Entry>>> values = new HashMap<>();
+            Map<String, List<Entry>> ranges = new HashMap<>();
+            List<Entry> all = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (entry.access == null) {
+                    all.add(entry);
+                } else if (entry.access.kind == MessageFilter.Kind.RANGE) {
+                    ranges.computeIfAbsent(entry.access.name, n -> new ArrayList<>()).add(entry);
+                } else {
+                    Map<String, List<Entry>> byName = values.computeIfAbsent(entry.access.name, n -> new HashMap<>());
+                    for (String value : entry.access.values) {
+                        byName.computeIfAbsent(value, v -> new ArrayList<>()).add(entry);
+                    }
+                }
+            }
+            values.forEach((name, byName) -> {
+                Map<String, Entry[]> compiled = new HashMap<>();
+                byName.forEach((value, list) -> compiled.put(value, list.toArray(new Entry[0])));
+                byValue.put(name, compiled);
+            });
+            ranges.forEach((name, list) -> byRange.put(name, IntervalTree.build(list)));
+            this.unfiltered = all.toArray(new Entry[0]);
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    // null after a change, until the next publish compiles it again.
+    private volatile Compiled compiled;
+
+    public synchronized void subscribe(Consumer consumer, MessageFilter filter) {
+        List<MessageFilter.Predicate> predicates = filter.getPredicates();
+        MessageFilter.Predicate access = null;
+        for (MessageFilter.Predicate predicate : predicates) {
+            if (access == null || rank(predicate) < rank(access)) {
+                access = predicate;
+            }
+        }
+        List<MessageFilter.Predicate> rest = new ArrayList<>(predicates);
+        rest.remove(access);
+        entries.add(new Entry(consumer, access, rest.toArray(new MessageFilter.Predicate[0])));
+        compiled = null;
+    }
+
+    public synchronized void unsubscribe(Consumer consumer) {
+        if (entries.removeIf(entry -> entry.consumer == consumer)) {
+            compiled = null;
+        }
+    }
+
+    // Consumers whose filter matches the message; a consumer subscribed with several
+    // filters gets it once per matching filter.
+    public Consumer[] match(Message message) {
+        Compiled current = compiled;
+        if (current == null) {
+            current = compile();
+        }
+        MessageHeaders headers = message.headers;
+        List<Consumer> matched = null;
+        for (Entry entry : current.unfiltered) {
+            matched = add(matched, entry.consumer);
+        }
+        if (headers == null) {
+            return matched == null ? NO_CONSUMERS : matched.toArray(NO_CONSUMERS);
+        }
+
+        List<Entry> candidates = null;
+        for (int i = 0; i < headers.size(); i++) {
+            String name = headers.nameAt(i);
+            Map<String, Entry[]> byName = current.byValue.get(name);
+            if (byName != null) {
+                Entry[] found = byName.get(headers.valueAt(i));
+                if (found != null) {
+                    for (Entry entry : found) {
+                        if (entry.restMatches(headers)) {
+                            matched = add(matched, entry.consumer);
+                        }
+                    }
+                }
+            }
+            IntervalTree ranges = current.byRange.get(name);
+            if (ranges != null) {
+                double value = headers.numberAt(i);
+                if (!Double.isNaN(value)) {
+                    candidates = candidates == null ? new ArrayList<>() : candidates;
+                    candidates.clear();
+                    ranges.stab(value, candidates);
+                    for (Entry entry : candidates) {
+                        if (entry.restMatches(headers)) {
+                            matched = add(matched, entry.consumer);
+                        }
+                    }
+                }
+            }
+        }
+        return matched == null ? NO_CONSUMERS : matched.toArray(NO_CONSUMERS);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized Compiled compile() {
+        if (compiled == null) {
+            compiled = new Compiled(entries);
+        }
+        return compiled;
+    }
+
+    // eq narrows to one value, in to a few, a range to an interval: index the first that
+    // applies.
+    private static int rank(MessageFilter.Predicate predicate) {
+        switch (predicate.kind) {
+            case EQ:
+                return 0;
+            case IN:
+                return 1 + predicate.values.size();
+            default:
+                return Integer.MAX_VALUE;
+        }
+    }
+
+    private static List<Consumer> add(List<Consumer> matched, Consumer consumer) {
+        if (matched == null) {
+            matched = new ArrayList<>();
+        }
+        matched.add(consumer);
+        return matched;
+    }
+}
@@ -0,0 +1,150 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Content-based subscriptions (MessageFilter / FilterIndex):
+//   1. correctness: random filters (eq, in, range) against random messages, compared with
+//      checking every filter one by one.
+//   2. cost per publish as filtered subscriptions grow from 1k to 100k, with 1% of them
+//      matching every message:
+//        eq index     - filters on region (eq) and price (range), found through the region
+//        range index  - filters on price ranges only, found through the interval tree
+//        in consumer  - today's way: plain subscriptions that filter inside onMessage
+//      The indexed ones should grow with the matching 1%, the last with all of them.
+//
+// Calls Topic.publish directly so the controller's println doesn't swamp the numbers.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.FilteredSubscriptionBenchmark
+public class FilteredSubscriptionBenchmark {
+
+    public static void main(String[] args) {
+        checkAgainstNaive();
+        System.out.printf("%-14s %12s %14s %14s %8s%n", "subscriptions", "eq index ns", "range index ns",
+                "in consumer ns", "matched");
+        for (int n = 1_000; n <= 100_000; n *= 10) {
+            cost(n);
+        }
+    }
+
+    private static void checkAgainstNaive() {
+        Random random = new Random(11);
+        String[] regions = {"eu", "us", "ap"};
+        String[] types = {"created", "updated", "deleted"};
+        Topic topic = new Topic("orders");
+        Map<Consumer, MessageFilter> filters = new HashMap<>();
+        Map<Consumer, int[]> received = new HashMap<>();
+
+        for (int i = 0; i < 2_000; i++) {
+            MessageFilter filter = new MessageFilter();
+            if (random.nextInt(3) > 0) {
+                filter.eq("region", regions[random.nextInt(regions.length)]);
+            }
+            if (random.nextBoolean()) {
+                filter.in("type", types[random.nextInt(types.length)], types[random.nextInt(types.length)]);
+            }
+            if (random.nextInt(3) > 0) {
+                double min = random.nextInt(100);
+                filter.range("price", min, min + random.nextInt(50));
+            }
+            int[] count = new int[1];
+            Consumer consumer = (t, message) -> count[0]++;
+            topic.subscribe(consumer, filter);
+            filters.put(consumer, filter);
+            received.put(consumer, count);
+        }
+        // Unsubscribe some so recompiling is exercised too.
+        int removed = 0;
+        for (Consumer consumer : filters.keySet().toArray(new Consumer[0])) {
+            if (removed++ % 10 == 0) {
+                topic.unsubscribe(consumer);
+                filters.remove(consumer);
+            }
+        }
+
+        int messages = 2_000;
+        Map<Consumer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < messages; i++) {
+            Message message = new Message("m" + i);
+            if (random.nextInt(5) > 0) {
+                message.getHeaders().put("region", regions[random.nextInt(regions.length)]);
+            }
+            if (random.nextInt(5) > 0) {
+                message.getHeaders().put("type", types[random.nextInt(types.length)]);
+            }
+            if (random.nextInt(5) > 0) {
+                message.getHeaders().put("price", random.nextInt(10) == 0 ? "n/a" : String.valueOf(random.nextInt(160)));
+            }
+            topic.publish(message);
+            filters.forEach((consumer, filter) -> {
+                if (filter.matches(message)) {
+                    expected.merge(consumer, 1, Integer::sum);
+                }
+            });
+        }
+        long deliveries = 0;
+        for (Map.Entry<Consumer, MessageFilter> entry : filters.entrySet()) {
+            int got = received.get(entry.getKey())[0];
+            if (got != expected.getOrDefault(entry.getKey(), 0)) {
+                throw new IllegalStateException("Filter index disagrees with the filter: " + got + " vs "
+                        + expected.getOrDefault(entry.getKey(), 0));
+            }
+            deliveries += got;
+        }
+        System.out.printf("index agrees with checking each filter: %d messages, %d filters, %d deliveries%n",
+                messages, filters.size(), deliveries);
+    }
+
+    private static void cost(int subscriptions) {
+        int[] delivered = new int[1];
+        Topic byRegion = new Topic("orders");
+        Topic byPrice = new Topic("orders");
+        Topic plain = new Topic("orders");
+
+        for (int i = 0; i < subscriptions; i++) {
+            // Every 100th subscription matches the published message (region r0, price 50).
+            boolean match = i % 100 == 0;
+            Consumer consumer = (topic, message) -> delivered[0]++;
+
+            double min = match ? 40 : 60 + i % 40;
+            MessageFilter regional = new MessageFilter().eq("region", "r" + (i % 100)).range("price", min, min + 20);
+            byRegion.subscribe(consumer, regional);
+
+            MessageFilter priced = match ? new MessageFilter().range("price", 45, 55)
+                    : new MessageFilter().range("price", 60 + i % 900, 70 + i % 900);
+            byPrice.subscribe(consumer, priced);
+
+            plain.subscribe((topic, message) -> {
+                if (regional.matches(message)) {
+                    delivered[0]++;
+                }
+            });
+        }
+
+        Message message = new Message("order");
+        message.getHeaders().put("region", "r0").put("price", "50").put("type", "created");
+        double eq = time(byRegion, message, delivered, subscriptions / 100);
+        double range = time(byPrice, message, delivered, subscriptions / 100);
+        double scan = time(plain, message, delivered, subscriptions / 100);
+        System.out.printf("%-14d %12.0f %14.0f %14.0f %8d%n", subscriptions, eq, range, scan, subscriptions / 100);
+    }
+
+    // ns per publish, after checking each publish reaches exactly `matching` consumers.
+    private static double time(Topic topic, Message message, int[] delivered, int matching) {
+        delivered[0] = 0;
+        topic.publish(message);
+        if (delivered[0] != matching) {
+            throw new IllegalStateException("Expected " + matching + " deliveries, got " + delivered[0]);
+        }
+        int rounds = Math.max(50, 20_000_000 / (matching * 100));
+        for (int i = 0; i < rounds; i++) {
+            topic.publish(message);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            topic.publish(message);
+        }
+        return (System.nanoTime() - start) / (double) rounds;
+    }
+}
@@ -0,0 +1,210 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// A fast producer and a slow subscriber (WORK_MS per message, requesting one at a time):
+//   flow BLOCK        - TopicFlowPublisher with a BUFFER-message buffer: publish() waits for
+//                       the subscriber, the backlog never passes BUFFER
+//   flow DROP_OLDEST  - same buffer, publisher never waits, the excess is dropped
+//   async (no limit)  - AsyncConsumer with room for the whole run: publish() returns
+//                       right away and the whole run piles up in memory
+//
+// Then the reactive-streams contract: no onNext beyond what was requested, request(0) is
+// an onError, cancel stops delivery, close() completes after the buffer is drained.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.FlowBackpressureDemo
+public class FlowBackpressureDemo {
+
+    private static final int MESSAGES = 500;
+    private static final int BUFFER = 32;
+    private static final long WORK_MS = 2;
+
+    // Requests one message at a time and takes WORK_MS over each.
+    static class SlowSubscriber implements Flow.Subscriber<Message> {
+        final AtomicInteger received = new AtomicInteger();
+        final CountDownLatch completed = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Flow.Subscription subscription;
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        public void onNext(Message message) {
+            sleep(WORK_MS);
+            received.incrementAndGet();
+            subscription.request(1);
+        }
+
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            completed.countDown();
+        }
+
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()) {
+            @Override
+            public void println(String line) {
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        stdout.printf("%-18s %12s %14s %10s %10s%n", "mode", "publish ms", "peak backlog", "received", "dropped");
+        flow(stdout, executor, OverflowPolicy.BLOCK);
+        flow(stdout, executor, OverflowPolicy.DROP_OLDEST);
+        unbounded(stdout, executor);
+
+        checkContract(stdout, executor);
+        executor.shutdown();
+        System.setOut(stdout);
+    }
+
+    private static void flow(PrintStream stdout, ExecutorService executor, OverflowPolicy policy)
+            throws InterruptedException {
+        PubSubController controller = new PubSubController();
+        TopicFlowPublisher flow = controller.asFlowPublisher("ticks", BUFFER, policy, executor);
+        SlowSubscriber subscriber = new SlowSubscriber();
+        flow.subscribe(subscriber);
+
+        Publisher publisher = new BasicPublisher();
+        int peak = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            controller.publish(publisher, "ticks", new Message(String.valueOf(i)));
+            peak = Math.max(peak, flow.getBuffered());
+        }
+        double publishMs = (System.nanoTime() - start) / 1e6;
+        long dropped = flow.getDropped();
+        flow.close();
+        if (!subscriber.completed.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Subscriber never completed");
+        }
+        if (peak > BUFFER || subscriber.received.get() + dropped != MESSAGES) {
+            throw new IllegalStateException("peak " + peak + ", received " + subscriber.received + ", dropped " + dropped);
+        }
+        stdout.printf("%-18s %12.0f %14d %10d %10d%n", "flow " + policy, publishMs, peak,
+                subscriber.received.get(), dropped);
+    }
+
+    private static void unbounded(PrintStream stdout, ExecutorService executor) throws InterruptedException {
+        PubSubController controller = new PubSubController();
+        AtomicInteger received = new AtomicInteger();
+        AsyncConsumer async = controller.subscribeAsync((topic, message) -> {
+            sleep(WORK_MS);
+            received.incrementAndGet();
+        }, "ticks", MESSAGES, OverflowPolicy.BLOCK, executor);
+
+        Publisher publisher = new BasicPublisher();
+        int peak = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            controller.publish(publisher, "ticks", new Message(String.valueOf(i)));
+            peak = Math.max(peak, async.getQueueDepth());
+        }
+        double publishMs = (System.nanoTime() - start) / 1e6;
+        while (received.get() < MESSAGES) {
+            Thread.sleep(5);
+        }
+        stdout.printf("%-18s %12.0f %14d %10d %10d%n", "async (no limit)", publishMs, peak, received.get(), 0);
+    }
+
+    private static void checkContract(PrintStream stdout, ExecutorService executor) throws InterruptedException {
+        PubSubController controller = new PubSubController();
+        Publisher publisher = new BasicPublisher();
+        TopicFlowPublisher flow = controller.asFlowPublisher("contract", 100, OverflowPolicy.REJECT, executor);
+
+        // Requests 3 up front and no more: must see exactly 3 of 10.
+        AtomicInteger limited = new AtomicInteger();
+        flow.subscribe(new CountingSubscriber(limited, 3, 0));
+        // request(0) must come back as onError.
+        AtomicReference<Throwable> badRequest = new AtomicReference<>();
+        CountDownLatch failed = new CountDownLatch(1);
+        flow.subscribe(new CountingSubscriber(new AtomicInteger(), 0, 0) {
+            @Override
+            public void onError(Throwable throwable) {
+                badRequest.set(throwable);
+                failed.countDown();
+            }
+        });
+        // Cancels after 5: must see exactly 5.
+        AtomicInteger cancelling = new AtomicInteger();
+        flow.subscribe(new CountingSubscriber(cancelling, Long.MAX_VALUE, 5));
+        // Unbounded demand: sees all 10, then onComplete on close.
+        AtomicInteger all = new AtomicInteger();
+        CountingSubscriber complete = new CountingSubscriber(all, Long.MAX_VALUE, 0);
+        flow.subscribe(complete);
+
+        for (int i = 0; i < 10; i++) {
+            controller.publish(publisher, "contract", new Message(String.valueOf(i)));
+        }
+        flow.close();
+        if (!complete.completed.await(5, TimeUnit.SECONDS) || !failed.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Missing onComplete/onError");
+        }
+        Thread.sleep(50);
+        if (limited.get() != 3 || cancelling.get() != 5 || all.get() != 10
+                || !(badRequest.get() instanceof IllegalArgumentException)) {
+            throw new IllegalStateException("limited " + limited + ", cancelling " + cancelling + ", all " + all
+                    + ", request(0) -> " + badRequest.get());
+        }
+        stdout.println("contract: demand respected (3 of 10), request(0) -> onError, cancel after 5, "
+                + "onComplete after close");
+    }
+
+    // Requests `initial` in onSubscribe (0 = a bad request) and cancels after `cancelAfter`.
+    static class CountingSubscriber implements Flow.Subscriber<Message> {
+        final AtomicInteger count;
+        final long initial;
+        final int cancelAfter;
+        final CountDownLatch completed = new CountDownLatch(1);
+        Flow.Subscription subscription;
+
+        CountingSubscriber(AtomicInteger count, long initial, int cancelAfter) {
+            this.count = count;
+            this.initial = initial;
+            this.cancelAfter = cancelAfter;
+        }
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initial);
+        }
+
+        public void onNext(Message message) {
+            if (count.incrementAndGet() == cancelAfter) {
+                subscription.cancel();
+            }
+        }
+
+        public void onError(Throwable throwable) {
+            throw new IllegalStateException("Unexpected onError", throwable);
+        }
+
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
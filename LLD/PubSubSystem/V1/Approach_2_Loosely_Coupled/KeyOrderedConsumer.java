@@ -0,0 +1,106 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Parallel delivery to one consumer without giving up per-key order: messages are spread
+// over up to maxLanes serial lanes by key (Topic.partitionFor), and lanes run concurrently
+// on `executor`. Each lane is an AsyncConsumer, so it delivers one message at a time in
+// publish order, which keeps every key in order, while different keys proceed in parallel.
+// The consumer's onMessage must therefore be safe to call from several threads at once.
+//
+// Lanes are made on first use, so a topic with few keys only gets a few, and there are
+// never more than maxLanes however many keys there are. A lane holds at most laneCapacity
+// messages; when it's full the publisher waits (BLOCK), since dropping or reordering would
+// break the per-key guarantee. Messages without a key need no order and go round robin.
+//
+// Unlike a ConsumerGroup, this is a single subscriber: no members, no rebalancing, and
+// lanes are threads from a shared pool only while they have messages.
+class KeyOrderedConsumer implements Consumer {
+    private final Topic topic;
+    private final Consumer delegate;
+    private final int laneCapacity;
+    private final Executor executor;
+    private final AtomicReferenceArray<AsyncConsumer> lanes;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    public KeyOrderedConsumer(Topic topic, Consumer delegate, int maxLanes, int laneCapacity, Executor executor) {
+        if (maxLanes <= 0 || laneCapacity <= 0) {
+            throw new IllegalArgumentException("maxLanes and laneCapacity must be positive: " + maxLanes + ", " + laneCapacity);
+        }
+        this.topic = topic;
+        this.delegate = delegate;
+        this.laneCapacity = laneCapacity;
+        this.executor = executor;
+        this.lanes = new AtomicReferenceArray<>(maxLanes);
+    }
+
+    // Called on the publisher's thread.
+    public void onMessage(Topic topic, Message message) {
+        int lane = message.getKey() == null
+                ? Math.floorMod(roundRobin.getAndIncrement(), lanes.length())
+                : Topic.partitionFor(message.getKey(), lanes.length());
+        lane(lane).onMessage(topic, message);
+    }
+
+    private AsyncConsumer lane(int index) {
+        AsyncConsumer lane = lanes.get(index);
+        if (lane == null) {
+            AsyncConsumer created = new AsyncConsumer(topic, delegate, laneCapacity, OverflowPolicy.BLOCK, executor);
+            lane = lanes.compareAndSet(index, null, created) ? created : lanes.get(index);
+        }
+        return lane;
+    }
+
+    public Consumer getDelegate() {
+        return delegate;
+    }
+
+    public int getMaxLanes() {
+        return lanes.length();
+    }
+
+    public int getLaneCount() {
+        int count = 0;
+        for (int i = 0; i < lanes.length(); i++) {
+            if (lanes.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (int i = 0; i < lanes.length(); i++) {
+            AsyncConsumer lane = lanes.get(i);
+            if (lane != null) {
+                depth += lane.getQueueDepth();
+            }
+        }
+        return depth;
+    }
+
+    public long getDelivered() {
+        long delivered = 0;
+        for (int i = 0; i < lanes.length(); i++) {
+            AsyncConsumer lane = lanes.get(i);
+            if (lane != null) {
+                delivered += lane.getDelivered();
+            }
+        }
+        return delivered;
+    }
+
+    public long getFailed() {
+        long failed = 0;
+        for (int i = 0; i < lanes.length(); i++) {
+            AsyncConsumer lane = lanes.get(i);
+            if (lane != null) {
+                failed += lane.getFailed();
+            }
+        }
+        return failed;
+    }
+}
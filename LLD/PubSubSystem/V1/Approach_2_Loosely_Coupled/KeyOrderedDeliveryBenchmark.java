@@ -0,0 +1,90 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Throughput of one subscriber whose onMessage takes WORK_MS (think a DB write), as the
+// number of key-ordered lanes grows. One lane is what AsyncConsumer gives today: a single
+// serial queue. With n lanes the subscriber should handle about n times as many messages,
+// as long as there are n threads (and, for CPU-bound work, n cores) to run them.
+//
+// Every message carries a per-key sequence number and each run checks that every key was
+// seen strictly in order. The last line shows lanes are made lazily: a few keys only
+// create a few of the allowed lanes.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.KeyOrderedDeliveryBenchmark
+public class KeyOrderedDeliveryBenchmark {
+
+    private static final int KEYS = 500;
+    private static final int MESSAGES = 2_000;
+    private static final long WORK_MS = 1;
+
+    public static void main(String[] args) throws InterruptedException {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()) {
+            @Override
+            public void println(String line) {
+            }
+        });
+
+        stdout.printf("%-8s %10s %10s %12s%n", "lanes", "msgs/s", "speedup", "lanes made");
+        double single = 0;
+        for (int lanes = 1; lanes <= 32; lanes *= 2) {
+            KeyOrderedConsumer[] used = new KeyOrderedConsumer[1];
+            double rate = run(lanes, KEYS, used);
+            single = lanes == 1 ? rate : single;
+            stdout.printf("%-8d %10.0f %9.1fx %12d%n", lanes, rate, rate / single, used[0].getLaneCount());
+        }
+        KeyOrderedConsumer[] used = new KeyOrderedConsumer[1];
+        run(64, 3, used);
+        stdout.printf("3 keys with up to %d lanes: %d lanes made%n", used[0].getMaxLanes(), used[0].getLaneCount());
+        System.setOut(stdout);
+    }
+
+    private static double run(int lanes, int keys, KeyOrderedConsumer[] used) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(lanes);
+        PubSubController controller = new PubSubController();
+        Map<String, Integer> lastSeen = new ConcurrentHashMap<>();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+
+        Consumer consumer = (topic, message) -> {
+            try {
+                Thread.sleep(WORK_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            int seq = Integer.parseInt(message.getData());
+            Integer previous = lastSeen.put(message.getKey(), seq);
+            if (seq != (previous == null ? 0 : previous + 1)) {
+                outOfOrder.incrementAndGet();
+            }
+            consumed.incrementAndGet();
+        };
+        KeyOrderedConsumer ordered = controller.subscribeKeyOrdered(consumer, "orders", lanes, 256, executor);
+        used[0] = ordered;
+
+        Publisher publisher = new BasicPublisher();
+        int[] sequence = new int[keys];
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            int key = i % keys;
+            controller.publish(publisher, "orders", new Message("order-" + key, String.valueOf(sequence[key]++)));
+        }
+        while (consumed.get() < MESSAGES) {
+            Thread.sleep(1);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+
+        if (outOfOrder.get() > 0 || ordered.getFailed() > 0) {
+            throw new IllegalStateException(outOfOrder.get() + " messages out of order with " + lanes + " lanes");
+        }
+        return MESSAGES / seconds;
+    }
+}
@@ -0,0 +1,99 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// What a content-based subscription wants, as conditions on message headers that must all
+// hold:
+//   new MessageFilter().eq("region", "eu").in("type", "created", "updated").range("price", 10, 100)
+// eq and in compare header values as strings; range, atLeast and atMost parse the header as
+// a number (inclusive bounds). A message without the header doesn't match.
+//
+// Topics don't evaluate filters one by one; they compile them into a FilterIndex.
+class MessageFilter {
+    enum Kind { EQ, IN, RANGE }
+
+    static final class Predicate {
+        final Kind kind;
+        final String name;
+        final Set<String> values;   // EQ (one value) and IN
+        final double min;           // RANGE
+        final double max;
+
+        Predicate(Kind kind, String name, Set<String> values, double min, double max) {
+            this.kind = kind;
+            this.name = name;
+            this.values = values;
+            this.min = min;
+            this.max = max;
+        }
+
+        boolean test(MessageHeaders headers) {
+            if (headers == null) {
+                return false;
+            }
+            if (kind == Kind.RANGE) {
+                double number = headers.getNumber(name);
+                return number >= min && number <= max;
+            }
+            String value = headers.get(name);
+            return value != null && values.contains(value);
+        }
+    }
+
+    private final List<Predicate> predicates = new ArrayList<>();
+
+    public MessageFilter eq(String name, String value) {
+        predicates.add(new Predicate(Kind.EQ, name, Set.of(value), 0, 0));
+        return this;
+    }
+
+    public MessageFilter in(String name, String... values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("in() needs at least one value for " + name);
+        }
+        predicates.add(new Predicate(Kind.IN, name, new HashSet<>(Arrays.asList(values)), 0, 0));
+        return this;
+    }
+
+    public MessageFilter range(String name, double min, double max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Empty range for " + name + ": " + min + " > " + max);
+        }
+        predicates.add(new Predicate(Kind.RANGE, name, null, min, max));
+        return this;
+    }
+
+    public MessageFilter atLeast(String name, double min) {
+        return range(name, min, Double.POSITIVE_INFINITY);
+    }
+
+    public MessageFilter atMost(String name, double max) {
+        return range(name, Double.NEGATIVE_INFINITY, max);
+    }
+
+    public boolean matches(Message message) {
+        for (Predicate predicate : predicates) {
+            if (!predicate.test(message.headers)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    List<Predicate> getPredicates() {
+        return predicates;
+    }
+
+    // NaN for anything that isn't a number, which fails every range.
+    static double parse(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
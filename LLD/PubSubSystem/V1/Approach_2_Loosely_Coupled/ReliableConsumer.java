@@ -0,0 +1,269 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+// A consumer that acknowledges messages explicitly, through the Delivery it's handed. It
+// may ack later and from another thread; until it does, the message counts as in flight.
+interface AckingConsumer {
+    void onMessage(Topic topic, Delivery delivery);
+
+    // For a plain Consumer: ack when onMessage returns, so a message it throws on is
+    // redelivered instead of lost.
+    static AckingConsumer autoAck(Consumer consumer) {
+        return (topic, delivery) -> {
+            consumer.onMessage(topic, delivery.getMessage());
+            delivery.ack();
+        };
+    }
+}
+
+// One message on its way to a ReliableConsumer, across all its delivery attempts.
+class Delivery extends TimingWheel.Timeout {
+    private static final int IN_FLIGHT = 0;
+    private static final int ACKED = 1;
+    private static final int DEAD = 2;
+
+    private final ReliableConsumer owner;
+    private final Message message;
+    private int attempt = 1;
+    private int state = IN_FLIGHT;  // guarded by this
+
+    Delivery(ReliableConsumer owner, Message message) {
+        this.owner = owner;
+        this.message = message;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    // 1 for the first delivery, 2 for the first redelivery, ...
+    public synchronized int getAttempt() {
+        return attempt;
+    }
+
+    // Safe to call more than once, and after a redelivery went out for the same message.
+    public void ack() {
+        synchronized (this) {
+            if (state != IN_FLIGHT) {
+                return;
+            }
+            state = ACKED;
+        }
+        owner.acked(this);
+    }
+
+    synchronized boolean isCancelled() {
+        return state != IN_FLIGHT;
+    }
+
+    // Ack deadline passed. Runs on the wheel's thread.
+    void expire() {
+        boolean dead;
+        synchronized (this) {
+            if (state != IN_FLIGHT) {
+                return;
+            }
+            dead = attempt >= owner.getMaxAttempts();
+            if (dead) {
+                state = DEAD;
+            } else {
+                attempt++;
+                // The attempt's own reference, so an ack racing with it can't recycle the
+                // payload while the consumer still reads it.
+                message.retain();
+            }
+        }
+        if (dead) {
+            owner.deadLetter(this);
+        } else {
+            owner.redeliver(this);
+        }
+    }
+
+    // The wheel closed (the controller did) with this still waiting for its ack: nothing
+    // will redeliver it now, so give up on it.
+    void abandon() {
+        synchronized (this) {
+            if (state != IN_FLIGHT) {
+                return;
+            }
+            state = DEAD;
+        }
+        owner.abandoned(this);
+    }
+}
+
+// At-least-once delivery to an AckingConsumer. Every message stays in flight until the
+// consumer acks it; if that doesn't happen within ackTimeoutMillis (it threw, it hung,
+// it forgot) the message is delivered again, and after maxAttempts deliveries without an
+// ack it's published to the dead-letter topic instead, for someone to look at.
+//
+// The first delivery runs on the publisher's thread like any consumer; redeliveries run on
+// `executor`. Ack deadlines are kept in a TimingWheel, so a million messages in flight cost
+// no more per tick than a few, and an ack is just a flag the wheel sees later.
+//
+// At-least-once means duplicates: a slow ack can cross a redelivery, so consumers should
+// be idempotent. It only holds while the controller is open, though: closing it abandons
+// messages still in flight (counted in getAbandoned) rather than waiting for their acks.
+class ReliableConsumer implements Consumer {
+    private final Topic topic;
+    private final AckingConsumer delegate;
+    private final long ackTimeoutMillis;
+    private final int maxAttempts;
+    private final Topic deadLetters;
+    private final TimingWheel timers;
+    private final Executor executor;
+
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder redelivered = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder deadLetterFailed = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    public ReliableConsumer(Topic topic, AckingConsumer delegate, long ackTimeoutMillis, int maxAttempts,
+                            Topic deadLetters, TimingWheel timers, Executor executor) {
+        if (ackTimeoutMillis <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("ackTimeoutMillis and maxAttempts must be positive: "
+                    + ackTimeoutMillis + ", " + maxAttempts);
+        }
+        this.topic = topic;
+        this.delegate = delegate;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        this.maxAttempts = maxAttempts;
+        this.deadLetters = deadLetters;
+        this.timers = timers;
+        this.executor = executor;
+    }
+
+    // Called on the publisher's thread.
+    public void onMessage(Topic topic, Message message) {
+        // Held until the message is acked or dead-lettered; the topic's own reference
+        // covers this first attempt.
+        message.retain();
+        Delivery delivery = new Delivery(this, message);
+        inFlight.increment();
+        try {
+            timers.schedule(delivery, ackTimeoutMillis);
+        } catch (IllegalStateException e) {
+            // The controller closed the wheel: nothing to track it with, so don't take it.
+            inFlight.decrement();
+            message.release();
+            throw e;
+        }
+        attempt(delivery);
+    }
+
+    // Runs on the wheel's thread, so it only hands the attempt to `executor`.
+    void redeliver(Delivery delivery) {
+        try {
+            timers.schedule(delivery, ackTimeoutMillis);
+        } catch (IllegalStateException e) {
+            // Closing: drop this attempt's reference, then the delivery's, like close() does
+            // for the ones still on the wheel.
+            delivery.getMessage().release();
+            delivery.abandon();
+            return;
+        }
+        redelivered.increment();
+        try {
+            executor.execute(() -> {
+                try {
+                    attempt(delivery);
+                } finally {
+                    delivery.getMessage().release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Counts as a failed attempt: the timer just armed brings it back.
+            delivery.getMessage().release();
+        }
+    }
+
+    private void attempt(Delivery delivery) {
+        try {
+            delegate.onMessage(topic, delivery);
+        } catch (RuntimeException e) {
+            // Not acked, so the timer brings it back.
+        }
+    }
+
+    void acked(Delivery delivery) {
+        inFlight.decrement();
+        acked.increment();
+        delivery.getMessage().release();
+    }
+
+    void abandoned(Delivery delivery) {
+        inFlight.decrement();
+        abandoned.increment();
+        delivery.getMessage().release();
+    }
+
+    // The dead-letter topic gets the message as it was; its reference passes to that
+    // publish. Runs on the wheel's thread, so the publish (DLQ consumers, and a log write
+    // on a durable controller) goes to `executor`, like a redelivery.
+    void deadLetter(Delivery delivery) {
+        inFlight.decrement();
+        Message message = delivery.getMessage();
+        try {
+            executor.execute(() -> publishDeadLetter(message));
+        } catch (RejectedExecutionException e) {
+            message.release();
+            deadLetterFailed.increment();
+        }
+    }
+
+    private void publishDeadLetter(Message message) {
+        if (message instanceof BinaryMessage && deadLetters.getLog() != null) {
+            // A durable topic refuses it before taking the reference, so it's still ours.
+            message.release();
+            deadLetterFailed.increment();
+            return;
+        }
+        try {
+            deadLetters.publish(message);
+            deadLettered.increment();
+        } catch (RuntimeException e) {
+            // A DLQ consumer threw; publish has already released the message.
+            deadLetterFailed.increment();
+        }
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Topic getDeadLetterTopic() {
+        return deadLetters;
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    public long getAcked() {
+        return acked.sum();
+    }
+
+    public long getRedelivered() {
+        return redelivered.sum();
+    }
+
+    public long getDeadLettered() {
+        return deadLettered.sum();
+    }
+
+    // Gave up on, but the dead-letter topic couldn't take it either.
+    public long getDeadLetterFailed() {
+        return deadLetterFailed.sum();
+    }
+
+    // Still in flight when the controller closed.
+    public long getAbandoned() {
+        return abandoned.sum();
+    }
+}
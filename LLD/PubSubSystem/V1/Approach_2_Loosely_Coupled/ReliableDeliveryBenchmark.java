@@ -0,0 +1,143 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// At-least-once delivery (ReliableConsumer):
+//   1. a consumer that misbehaves on purpose, by message id:
+//        id % 10 == 0  always throws          -> 3 attempts, then the dead-letter topic
+//        id % 10 == 1  throws the first time  -> redelivered once, then acked
+//        id % 10 == 2  forgets to ack once    -> redelivered once, then acked
+//        otherwise     acks right away
+//      and we check every message ends up acked or dead-lettered, never lost.
+//   2. IN_FLIGHT messages held unacked, then all acked: the cost per message of tracking
+//      the ack deadline in the TimingWheel, against one ScheduledExecutorService task per
+//      message (schedule, then cancel).
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.ReliableDeliveryBenchmark
+public class ReliableDeliveryBenchmark {
+
+    private static final int MESSAGES = 1_000;
+    private static final int IN_FLIGHT = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()) {
+            @Override
+            public void println(String line) {
+            }
+        });
+        misbehavingConsumer(stdout);
+        stdout.printf("%-26s %14s %14s%n", IN_FLIGHT + " in flight", "track ns/msg", "ack ns/msg");
+        for (int round = 0; round < 2; round++) {
+            // First round is JIT warm-up, only the second is printed.
+            PrintStream out = round == 0 ? new PrintStream(OutputStream.nullOutputStream()) : stdout;
+            timingWheel(out);
+            scheduledExecutor(out);
+        }
+        System.setOut(stdout);
+    }
+
+    private static void misbehavingConsumer(PrintStream stdout) throws Exception {
+        PubSubController controller = new PubSubController();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Set<Integer> acked = ConcurrentHashMap.newKeySet();
+        Set<Integer> dead = ConcurrentHashMap.newKeySet();
+
+        ReliableConsumer reliable = controller.subscribeReliable((topic, delivery) -> {
+            int id = Integer.parseInt(delivery.getMessage().getData());
+            if (id % 10 == 0 || (id % 10 == 1 && delivery.getAttempt() == 1)) {
+                throw new IllegalStateException("can't handle " + id);
+            }
+            if (id % 10 == 2 && delivery.getAttempt() == 1) {
+                return;
+            }
+            if (!acked.add(id)) {
+                throw new IllegalStateException("Acked " + id + " twice");
+            }
+            delivery.ack();
+        }, "payments", 50, 3, executor);
+        controller.subscribe((topic, message) -> dead.add(Integer.parseInt(message.getData())), "payments.dlq");
+
+        Publisher publisher = new BasicPublisher();
+        for (int i = 0; i < MESSAGES; i++) {
+            controller.publish(publisher, "payments", new Message(String.valueOf(i)));
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reliable.getInFlight() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // Dead letters are published on the executor, so let it finish first.
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        controller.close();
+
+        for (int i = 0; i < MESSAGES; i++) {
+            boolean shouldDie = i % 10 == 0;
+            if (shouldDie != dead.contains(i) || shouldDie == acked.contains(i)) {
+                throw new IllegalStateException("Message " + i + ": acked " + acked.contains(i) + ", dead " + dead.contains(i));
+            }
+        }
+        stdout.printf("%d messages: %d acked, %d redelivered, %d dead-lettered after 3 attempts, none lost%n",
+                MESSAGES, reliable.getAcked(), reliable.getRedelivered(), reliable.getDeadLettered());
+    }
+
+    private static void timingWheel(PrintStream out) throws Exception {
+        PubSubController controller = new PubSubController();
+        List<Delivery> held = new ArrayList<>(IN_FLIGHT);
+        ReliableConsumer reliable = controller.subscribeReliable((topic, delivery) -> held.add(delivery),
+                "payments", 60_000, 3, Runnable::run);
+        Topic topic = controller.getTopic("payments");
+        Message[] messages = new Message[IN_FLIGHT];
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            messages[i] = new Message("m");
+        }
+
+        long start = System.nanoTime();
+        for (Message message : messages) {
+            topic.publish(message);
+        }
+        double track = (System.nanoTime() - start) / (double) IN_FLIGHT;
+        start = System.nanoTime();
+        for (Delivery delivery : held) {
+            delivery.ack();
+        }
+        double ack = (System.nanoTime() - start) / (double) IN_FLIGHT;
+        if (reliable.getInFlight() != 0) {
+            throw new IllegalStateException(reliable.getInFlight() + " still in flight");
+        }
+        controller.close();
+        out.printf("%-26s %14.0f %14.0f%n", "timing wheel", track, ack);
+    }
+
+    // What tracking each deadline with its own scheduled task would cost. Counts only the
+    // timer calls, not the delivery around them.
+    private static void scheduledExecutor(PrintStream out) {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+        List<ScheduledFuture<?>> futures = new ArrayList<>(IN_FLIGHT);
+        Runnable redeliver = () -> { };
+
+        long start = System.nanoTime();
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            futures.add(scheduler.schedule(redeliver, 60_000 + i % 1000, TimeUnit.MILLISECONDS));
+        }
+        double track = (System.nanoTime() - start) / (double) IN_FLIGHT;
+        start = System.nanoTime();
+        for (ScheduledFuture<?> future : futures) {
+            future.cancel(false);
+        }
+        double ack = (System.nanoTime() - start) / (double) IN_FLIGHT;
+        scheduler.shutdownNow();
+        out.printf("%-26s %14.0f %14.0f%n", "scheduled task per message", track, ack);
+    }
+}
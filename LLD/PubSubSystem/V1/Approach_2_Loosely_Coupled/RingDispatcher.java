@@ -0,0 +1,252 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// How a RingDispatcher consumer thread waits for the next message.
+enum WaitStrategy {
+    BUSY_SPIN,  // never gives up the core: lowest latency, burns a whole core per consumer
+    YIELD,      // spins briefly, then Thread.yield(): low latency, still busy when idle
+    PARK        // spins briefly, then parks until a publisher unparks it: idle costs nothing
+}
+
+// A sequence number on its own cache line, so a consumer bumping its sequence doesn't slow
+// down publishers and other consumers reading theirs (false sharing). The padding is in
+// superclasses because the JVM won't reorder fields across the class hierarchy.
+class SequenceLeftPadding {
+    long p1, p2, p3, p4, p5, p6, p7;
+}
+
+class SequenceValue extends SequenceLeftPadding {
+    protected volatile long value = -1;
+}
+
+class Sequence extends SequenceValue {
+    private static final AtomicLongFieldUpdater<SequenceValue> VALUE =
+            AtomicLongFieldUpdater.newUpdater(SequenceValue.class, "value");
+
+    long p9, p10, p11, p12, p13, p14, p15;
+
+    long get() {
+        return value;
+    }
+
+    // A store without the full fence of a volatile write; only its owner writes it.
+    void setOrdered(long sequence) {
+        VALUE.lazySet(this, sequence);
+    }
+}
+
+// Disruptor-style delivery for hot topics. Joins the topic as one Consumer; a publish then
+// only claims the next slot of a preallocated ring and writes the message reference into
+// it, however many consumers there are. Each consumer has its own thread and its own
+// Sequence (how far it has read), and works through the ring at its own pace, in order,
+// handling whatever has piled up in one batch.
+//
+// Publishers (any number of threads) claim sequence numbers with a CAS on `claimed`, and
+// mark a slot readable by storing its lap number (sequence / ringSize) in `available`, so
+// a consumer never reads a slot that was claimed but not filled yet, nor one left over
+// from the previous lap. A publisher that is a whole ring ahead of the slowest consumer
+// waits for it before overwriting: the ring is bounded, nothing is dropped.
+//
+// Consumers are fixed when the dispatcher is created and each runs one at a time, so a
+// consumer sees messages in publish order. Like AsyncConsumer, a BinaryMessage is retained
+// once per consumer while it sits in the ring.
+class RingDispatcher implements Consumer, AutoCloseable {
+    private static final int SPIN_TRIES = 100;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    private final class Handler implements Runnable {
+        final Consumer consumer;
+        final Sequence sequence = new Sequence();
+        final Thread thread;
+        volatile boolean parked;
+
+        Handler(Consumer consumer, int id) {
+            this.consumer = consumer;
+            this.thread = new Thread(this, "ring-" + topic.getName() + "-" + id);
+            this.thread.setDaemon(true);
+        }
+
+        public void run() {
+            long next = 0;
+            int idle = 0;
+            while (true) {
+                if (isAvailable(next)) {
+                    long last = next;
+                    while (last - next < mask && isAvailable(last + 1)) {
+                        last++;
+                    }
+                    for (long s = next; s <= last; s++) {
+                        Message message = slots[(int) s & mask];
+                        try {
+                            consumer.onMessage(topic, message);
+                        } catch (RuntimeException e) {
+                            failed.increment();
+                        } finally {
+                            message.release();
+                        }
+                    }
+                    sequence.setOrdered(last);
+                    next = last + 1;
+                    idle = 0;
+                } else if (!running) {
+                    return;
+                } else {
+                    idle = waitFor(next, idle);
+                }
+            }
+        }
+
+        private int waitFor(long next, int idle) {
+            if (waitStrategy == WaitStrategy.BUSY_SPIN || idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (waitStrategy == WaitStrategy.YIELD) {
+                Thread.yield();
+            } else {
+                // Say we're parking, then look once more: a publisher either sees the flag
+                // and unparks us, or published before the flag and we see it here.
+                parked = true;
+                if (!isAvailable(next) && running) {
+                    LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                }
+                parked = false;
+            }
+            return idle + 1;
+        }
+    }
+
+    private final Topic topic;
+    private final int mask;
+    private final int indexShift;
+    private final Message[] slots;
+    // Lap number of the message in each slot; a slot is readable for sequence s once it
+    // holds s >>> indexShift.
+    private final AtomicIntegerArray available;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    // Slowest consumer's sequence as last seen, so publishers only scan the consumers when
+    // they get close to wrapping.
+    private volatile long gatingCache = -1;
+    private final Handler[] handlers;
+    private final WaitStrategy waitStrategy;
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean running = true;
+
+    public RingDispatcher(Topic topic, int ringSize, WaitStrategy waitStrategy, Consumer... consumers) {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("ringSize must be a power of two: " + ringSize);
+        }
+        if (consumers.length == 0) {
+            throw new IllegalArgumentException("RingDispatcher needs at least one consumer");
+        }
+        this.topic = topic;
+        this.mask = ringSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(ringSize);
+        this.slots = new Message[ringSize];
+        this.available = new AtomicIntegerArray(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            available.set(i, -1);
+        }
+        this.waitStrategy = waitStrategy;
+        this.handlers = new Handler[consumers.length];
+        for (int i = 0; i < consumers.length; i++) {
+            handlers[i] = new Handler(consumers[i], i);
+        }
+        for (Handler handler : handlers) {
+            handler.thread.start();
+        }
+    }
+
+    // Called on the publisher's thread.
+    public void onMessage(Topic topic, Message message) {
+        if (!running) {
+            throw new IllegalStateException("RingDispatcher for " + topic.getName() + " is closed");
+        }
+        long sequence = claim();
+        for (int i = 0; i < handlers.length; i++) {
+            message.retain();
+        }
+        int index = (int) sequence & mask;
+        slots[index] = message;
+        if (waitStrategy == WaitStrategy.PARK) {
+            // A full volatile write, so it can't be reordered with reading `parked` below.
+            available.set(index, (int) (sequence >>> indexShift));
+            for (Handler handler : handlers) {
+                if (handler.parked) {
+                    // Cleared here so the next publishes don't unpark it again before it
+                    // even got to run; it re-checks the ring before parking anyway.
+                    handler.parked = false;
+                    LockSupport.unpark(handler.thread);
+                }
+            }
+        } else {
+            available.lazySet(index, (int) (sequence >>> indexShift));
+        }
+    }
+
+    private long claim() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            long wrapPoint = next - slots.length;
+            if (wrapPoint > gatingCache) {
+                long slowest = slowestSequence();
+                if (wrapPoint > slowest) {
+                    // Ring full: wait for the slowest consumer to free a slot.
+                    LockSupport.parkNanos(1);
+                    continue;
+                }
+                gatingCache = slowest;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private boolean isAvailable(long sequence) {
+        return available.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    private long slowestSequence() {
+        long slowest = Long.MAX_VALUE;
+        for (Handler handler : handlers) {
+            slowest = Math.min(slowest, handler.sequence.get());
+        }
+        return slowest;
+    }
+
+    // Stops the consumer threads once they've handled everything published so far. Stop
+    // publishing to the topic first.
+    @Override
+    public void close() {
+        running = false;
+        for (Handler handler : handlers) {
+            LockSupport.unpark(handler.thread);
+        }
+        for (Handler handler : handlers) {
+            try {
+                handler.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public int getRingSize() {
+        return slots.length;
+    }
+
+    // Messages published that the slowest consumer hasn't handled yet.
+    public long getBacklog() {
+        return claimed.get() - slowestSequence();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+}
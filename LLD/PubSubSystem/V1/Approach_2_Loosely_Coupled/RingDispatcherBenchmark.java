@@ -0,0 +1,186 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Synchronous broadcast vs RingDispatcher (each wait strategy) on a topic with CONSUMERS
+// consumers that do a little work per message.
+//   msgs/s      - MESSAGES published back to back, until the last consumer has seen them all
+//   p50/p99 us  - publish-to-delivery latency at the last consumer, for LATENCY_MESSAGES
+//                 published one every GAP_US (a loaded but not saturated topic)
+//   publish ns  - what a publish costs the publishing thread in the throughput run
+//
+// Finally several publisher threads at once through one ring, to check every consumer gets
+// every message exactly once and each publisher's messages in its order.
+//
+// Consumer threads need cores: BUSY_SPIN keeps one busy per consumer even when idle, and
+// with fewer cores than consumers + 1 it mostly measures the OS scheduler.
+//
+// Calls Topic.publish directly so the controller's println doesn't swamp the numbers.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.RingDispatcherBenchmark
+public class RingDispatcherBenchmark {
+
+    private static final int CONSUMERS = 4;
+    private static final int RING_SIZE = 16_384;
+    private static final int MESSAGES = 1_000_000;
+    private static final int LATENCY_MESSAGES = 20_000;
+    private static final long GAP_US = 20;
+
+    // Stands in for real per-message work, and counts what it has seen.
+    static class WorkingConsumer implements Consumer {
+        final long[] deliveredAt;
+        final AtomicLong seen = new AtomicLong();
+        long sink;
+
+        WorkingConsumer(long[] deliveredAt) {
+            this.deliveredAt = deliveredAt;
+        }
+
+        public void onMessage(Topic topic, Message message) {
+            long x = message.getOffset();
+            for (int i = 0; i < 20; i++) {
+                x = x * 6364136223846793005L + 1442695040888963407L;
+            }
+            sink += x;
+            if (deliveredAt != null) {
+                deliveredAt[(int) message.getOffset()] = System.nanoTime();
+            }
+            seen.lazySet(seen.get() + 1);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%d consumers, %d cores%n", CONSUMERS, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %12s %12s %10s %10s%n", "mode", "msgs/s", "publish ns", "p50 us", "p99 us");
+        run(null);
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            run(strategy);
+        }
+        checkMultiProducer();
+    }
+
+    private static void run(WaitStrategy strategy) throws InterruptedException {
+        Message[] messages = new Message[Math.max(MESSAGES, LATENCY_MESSAGES)];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = new Message(null, "tick", i);
+        }
+
+        // Throughput: warm up once, then measure.
+        double rate = 0;
+        double publishNs = 0;
+        for (int round = 0; round < 2; round++) {
+            WorkingConsumer[] consumers = consumers(null);
+            Topic topic = new Topic("ticks");
+            RingDispatcher ring = subscribe(topic, strategy, consumers);
+            long start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                topic.publish(messages[i]);
+            }
+            long published = System.nanoTime();
+            awaitAll(consumers, MESSAGES);
+            long done = System.nanoTime();
+            if (ring != null) {
+                ring.close();
+            }
+            rate = MESSAGES / ((done - start) / 1e9);
+            publishNs = (published - start) / (double) MESSAGES;
+        }
+
+        // Latency: paced publishing, measured at the last consumer.
+        long[] sentAt = new long[LATENCY_MESSAGES];
+        long[] deliveredAt = new long[LATENCY_MESSAGES];
+        WorkingConsumer[] consumers = consumers(deliveredAt);
+        Topic topic = new Topic("ticks");
+        RingDispatcher ring = subscribe(topic, strategy, consumers);
+        for (int i = 0; i < LATENCY_MESSAGES; i++) {
+            sentAt[i] = System.nanoTime();
+            topic.publish(messages[i]);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(GAP_US));
+        }
+        awaitAll(consumers, LATENCY_MESSAGES);
+        if (ring != null) {
+            ring.close();
+        }
+        long[] latencies = new long[LATENCY_MESSAGES];
+        for (int i = 0; i < LATENCY_MESSAGES; i++) {
+            latencies[i] = deliveredAt[i] - sentAt[i];
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%-10s %12.0f %12.0f %10.1f %10.1f%n", strategy == null ? "sync" : strategy.name().toLowerCase(),
+                rate, publishNs, latencies[LATENCY_MESSAGES / 2] / 1e3, latencies[LATENCY_MESSAGES * 99 / 100] / 1e3);
+    }
+
+    private static void checkMultiProducer() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 100_000;
+        long[][] lastSeen = new long[CONSUMERS][producers];
+        AtomicLong failures = new AtomicLong();
+        AtomicLong delivered = new AtomicLong();
+        Consumer[] consumers = new Consumer[CONSUMERS];
+        for (int c = 0; c < CONSUMERS; c++) {
+            long[] last = lastSeen[c];
+            Arrays.fill(last, -1);
+            consumers[c] = (topic, message) -> {
+                int producer = (int) (message.getOffset() / perProducer);
+                long seq = message.getOffset() % perProducer;
+                if (seq != last[producer] + 1) {
+                    failures.incrementAndGet();
+                }
+                last[producer] = seq;
+                delivered.incrementAndGet();
+            };
+        }
+        Topic topic = new Topic("ticks");
+        RingDispatcher ring = topic.subscribeRing(1024, WaitStrategy.PARK, consumers);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    topic.publish(new Message(null, "tick", (long) producer * perProducer + i));
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        ring.close();
+        if (failures.get() > 0 || delivered.get() != (long) CONSUMERS * producers * perProducer) {
+            throw new IllegalStateException(failures.get() + " out of order, " + delivered.get() + " delivered");
+        }
+        System.out.printf("%d publishers x %d messages through a 1024-slot ring: each of %d consumers got all, "
+                + "in per-publisher order%n", producers, perProducer, CONSUMERS);
+    }
+
+    // Only the last consumer records delivery times.
+    private static WorkingConsumer[] consumers(long[] deliveredAt) {
+        WorkingConsumer[] consumers = new WorkingConsumer[CONSUMERS];
+        for (int i = 0; i < CONSUMERS; i++) {
+            consumers[i] = new WorkingConsumer(i == CONSUMERS - 1 ? deliveredAt : null);
+        }
+        return consumers;
+    }
+
+    private static RingDispatcher subscribe(Topic topic, WaitStrategy strategy, WorkingConsumer[] consumers) {
+        if (strategy == null) {
+            for (Consumer consumer : consumers) {
+                topic.subscribe(consumer);
+            }
+            return null;
+        }
+        return topic.subscribeRing(RING_SIZE, strategy, consumers);
+    }
+
+    private static void awaitAll(WorkingConsumer[] consumers, long count) throws InterruptedException {
+        for (WorkingConsumer consumer : consumers) {
+            while (consumer.seen.get() < count) {
+                Thread.sleep(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Messages published with a delivery time (retry backoff, reminders): they wait here and
+// go to `sink` (the controller's publish) once their time has come, never before and at
+// most about a tick after.
+//
+// Pending messages sit in a hierarchical timing wheel, like the kernel's old timer wheel:
+// LEVELS wheels of 2^BITS slots, where level 0 has one slot per tick, level 1 one per 2^BITS
+// ticks, and so on, so four levels cover 2^32 ticks. A message goes in the slot of the
+// lowest level whose range reaches its delivery tick; every 2^BITS ticks the next slot of
+// the level above is emptied and its messages re-filed one level down, closer to their
+// time. Scheduling is O(1), each tick touches one slot, and a message is moved at most
+// LEVELS - 1 times on its way down, however many millions are pending. A flat wheel would
+// need a slot per tick of the longest delay; a heap would pay O(log n) per message.
+//
+// With a spill directory every scheduled message is also appended to a spill log there,
+// so a restart picks up where it stopped. A record is
+//   [int length][int crc32][long deliverAt][topic][key][data][int header count][headers...]
+// with strings written as [int UTF-8 length, -1 for null][bytes], length and crc covering
+// everything after the crc. Nothing is written when a message is delivered: the wheel
+// delivers in time order, so one number, the last tick fully delivered (the watermark
+// file), says which records are done. The spill is split into segments; a segment whose
+// records are all due by the watermark is deleted whole, and when most of the spill is
+// done records the oldest segment's remaining ones are copied forward so it can go too.
+//
+// Appends are buffered and written every tick, and nothing is fsynced before close(): a
+// crash loses at most the last tick's schedules, and may deliver the tick in progress
+// twice, so consumers of scheduled messages should be idempotent.
+//
+// If the spill fails (disk full, I/O error), what's already pending keeps being delivered
+// from memory, but nothing more is written: the watermark stops where it was, so a restart
+// delivers everything since then again, and schedule() refuses new messages, since it
+// couldn't keep them across a restart. getSpillFailure() says why.
+class ScheduledDelivery implements AutoCloseable {
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final int HEADER_BYTES = 8;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private static final class Entry {
+        final String topic;
+        final Message message;
+        final long deliverAt;
+        final long deadlineTick;
+        final int recordBytes;  // size in the spill, 0 when there's none
+        Entry next;
+
+        Entry(String topic, Message message, long deliverAt, long deadlineTick, int recordBytes) {
+            this.topic = topic;
+            this.message = message;
+            this.deliverAt = deliverAt;
+            this.deadlineTick = deadlineTick;
+            this.recordBytes = recordBytes;
+        }
+    }
+
+    private static final class Segment {
+        final long id;
+        final Path file;
+        final FileChannel channel;
+        long size;
+        long maxDeadlineTick = Long.MIN_VALUE;
+
+        Segment(long id, Path file, FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    private final BiConsumer<String, Message> sink;
+    private final long tickMillis;
+    private final Thread ticker;
+    private volatile boolean running = true;
+    private boolean closed;  // guarded by this; the spill is closed
+
+    // Guarded by this.
+    private final Entry[][] wheels = new Entry[LEVELS][SLOTS];
+    private long base;  // next tick to process
+    private long pending;
+    private long delivered;
+
+    // Spill state, guarded by this; all null/unused without a spill directory.
+    private final Path spillDirectory;
+    private final long segmentBytes;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final ByteBuffer writeBuffer;
+    private FileChannel watermarkChannel;
+    private long watermark;  // every record due by this tick has been delivered
+    private long liveBytes;
+    private long spillBytes;
+    private IOException spillFailure;  // once set, the spill isn't touched again
+
+    public ScheduledDelivery(BiConsumer<String, Message> sink, long tickMillis, Path spillDirectory,
+                             long segmentBytes) throws IOException {
+        if (tickMillis <= 0 || segmentBytes < WRITE_BUFFER_BYTES) {
+            throw new IllegalArgumentException("tickMillis must be positive and segmentBytes at least "
+                    + WRITE_BUFFER_BYTES + ": " + tickMillis + ", " + segmentBytes);
+        }
+        this.sink = sink;
+        this.tickMillis = tickMillis;
+        this.spillDirectory = spillDirectory;
+        this.segmentBytes = segmentBytes;
+        this.base = System.currentTimeMillis() / tickMillis + 1;
+        this.watermark = base - 1;
+        this.writeBuffer = spillDirectory == null ? null : ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+
+        List<Entry> overdue = new ArrayList<>();
+        if (spillDirectory != null) {
+            recover(overdue);
+        }
+        this.ticker = new Thread(() -> run(overdue), "scheduled-delivery");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    // Delivers `message` to `topic_name` at deliverAt (epoch millis), or right away if that
+    // has passed.
+    public void schedule(String topic_name, Message message, long deliverAt) {
+        if (message instanceof BinaryMessage) {
+            // Its buffer belongs to a pool, which shouldn't be drained by messages that
+            // wait for minutes or months.
+            throw new IllegalArgumentException("Scheduled delivery only takes String messages");
+        }
+        long deadlineTick = tickOf(deliverAt);
+        // Encoded outside the lock; only the copy into the write buffer is inside.
+        byte[] record = spillDirectory == null ? null : encode(topic_name, message, deliverAt);
+        synchronized (this) {
+            // Still taken while close() waits for the last tick: a consumer rescheduling a
+            // retry from it lands in the spill and goes out after the restart.
+            if (closed) {
+                throw new IllegalStateException("ScheduledDelivery is closed");
+            }
+            if (spillFailure != null) {
+                throw new IllegalStateException("Spill failed, not taking new schedules", spillFailure);
+            }
+            if (deadlineTick >= base) {
+                if (record != null) {
+                    spill(record, deadlineTick);
+                }
+                add(new Entry(topic_name, message, deliverAt, deadlineTick, record == null ? 0 : record.length));
+                pending++;
+                return;
+            }
+        }
+        // Its tick has already been processed.
+        deliver(topic_name, message);
+    }
+
+    // The first tick at or after deliverAt. Not (deliverAt + tickMillis - 1) / tickMillis,
+    // which overflows for "never" times like Long.MAX_VALUE and delivers them right away.
+    private long tickOf(long deliverAt) {
+        return Math.floorDiv(deliverAt, tickMillis) + (Math.floorMod(deliverAt, tickMillis) == 0 ? 0 : 1);
+    }
+
+    private void run(List<Entry> overdue) {
+        // Whatever came due while we were down, oldest first.
+        overdue.sort((a, b) -> Long.compare(a.deliverAt, b.deliverAt));
+        for (Entry entry : overdue) {
+            deliver(entry.topic, entry.message);
+        }
+        synchronized (this) {
+            for (Entry entry : overdue) {
+                liveBytes -= entry.recordBytes;
+            }
+            delivered += overdue.size();
+        }
+        while (running) {
+            long wait = base * tickMillis - System.currentTimeMillis();
+            if (wait > 0) {
+                // Parked rather than slept so close() can wake us without an interrupt: that
+                // would close the FileChannels of the spill and of the topic logs the sink
+                // writes to (ClosedByInterruptException). Never more than a tick, in case the
+                // wall clock jumps.
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(Math.min(wait, tickMillis)));
+                continue;
+            }
+            Entry due;
+            synchronized (this) {
+                due = advance();
+            }
+            long count = 0;
+            for (Entry entry = due; entry != null; entry = entry.next) {
+                deliver(entry.topic, entry.message);
+                count++;
+            }
+            synchronized (this) {
+                pending -= count;
+                delivered += count;
+                if (spillDirectory != null && spillFailure == null) {
+                    for (Entry entry = due; entry != null; entry = entry.next) {
+                        liveBytes -= entry.recordBytes;
+                    }
+                    afterTick(base - 1, count > 0 || !overdue.isEmpty());
+                    overdue.clear();
+                }
+            }
+        }
+    }
+
+    // Processes tick `base`: on a level 0 wrap first re-files the next slot of the level
+    // above (and of the one above that on its wrap, ...), then takes the due slot.
+    private Entry advance() {
+        int index = (int) (base & MASK);
+        if (index == 0) {
+            for (int level = 1; level < LEVELS; level++) {
+                int slot = (int) ((base >>> (BITS * level)) & MASK);
+                Entry entry = wheels[level][slot];
+                wheels[level][slot] = null;
+                while (entry != null) {
+                    Entry next = entry.next;
+                    add(entry);
+                    entry = next;
+                }
+                if (slot != 0) {
+                    break;
+                }
+            }
+        }
+        Entry due = wheels[0][index];
+        wheels[0][index] = null;
+        base++;
+        return due;
+    }
+
+    private void add(Entry entry) {
+        long delta = entry.deadlineTick - base;
+        long tick = entry.deadlineTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        if (delta >= 1L << (BITS * LEVELS)) {
+            // Beyond the top wheel: park it in the farthest slot, it's re-filed from there.
+            tick = base + (1L << (BITS * LEVELS)) - 1;
+        }
+        int slot = (int) ((tick >>> (BITS * level)) & MASK);
+        entry.next = wheels[level][slot];
+        wheels[level][slot] = entry;
+    }
+
+    private void deliver(String topic_name, Message message) {
+        try {
+            sink.accept(topic_name, message);
+        } catch (RuntimeException e) {
+            // A failing consumer mustn't hold up everyone else's messages.
+        }
+    }
+
+    // --- spill ---
+
+    private void spill(byte[] record, long deadlineTick) {
+        try {
+            Segment active = segments.peekLast();
+            if (active.size + writeBuffer.position() >= segmentBytes) {
+                active = roll();
+            }
+            if (writeBuffer.remaining() < record.length) {
+                flush();
+            }
+            if (record.length > writeBuffer.capacity()) {
+                write(active, ByteBuffer.wrap(record));
+            } else {
+                writeBuffer.put(record);
+            }
+            active.maxDeadlineTick = Math.max(active.maxDeadlineTick, deadlineTick);
+        } catch (IOException e) {
+            spillFailure = e;
+            throw new UncheckedIOException(e);
+        }
+        liveBytes += record.length;
+        spillBytes += record.length;
+    }
+
+    private static byte[] encode(String topic_name, Message message, long deliverAt) {
+        byte[] topic = topic_name.getBytes(StandardCharsets.UTF_8);
+        byte[] key = message.getKey() == null ? null : message.getKey().getBytes(StandardCharsets.UTF_8);
+        byte[] data = message.getData() == null ? null : message.getData().getBytes(StandardCharsets.UTF_8);
+        MessageHeaders headers = message.headers;
+        int headerCount = headers == null ? 0 : headers.size();
+        byte[][] headerBytes = new byte[headerCount * 2][];
+        int size = HEADER_BYTES + 8 + 4 + topic.length + 4 + (key == null ? 0 : key.length) + 4 + (data == null ? 0 : data.length) + 4;
+        for (int i = 0; i < headerCount; i++) {
+            headerBytes[2 * i] = headers.nameAt(i).getBytes(StandardCharsets.UTF_8);
+            headerBytes[2 * i + 1] = headers.valueAt(i).getBytes(StandardCharsets.UTF_8);
+            size += 8 + headerBytes[2 * i].length + headerBytes[2 * i + 1].length;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.position(HEADER_BYTES);
+        record.putLong(deliverAt);
+        putBytes(record, topic);
+        putBytes(record, key);
+        putBytes(record, data);
+        record.putInt(headerCount);
+        for (byte[] bytes : headerBytes) {
+            putBytes(record, bytes);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, size - HEADER_BYTES);
+        record.putInt(0, size - HEADER_BYTES).putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static void putBytes(ByteBuffer record, byte[] bytes) {
+        record.putInt(bytes == null ? -1 : bytes.length);
+        if (bytes != null) {
+            record.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    private void flush() throws IOException {
+        if (writeBuffer.position() == 0) {
+            return;
+        }
+        write(segments.peekLast(), writeBuffer.flip());
+        writeBuffer.clear();
+    }
+
+    private static void write(Segment segment, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            segment.size += segment.channel.write(bytes, segment.size);
+        }
+    }
+
+    private Segment roll() throws IOException {
+        flush();
+        Segment last = segments.peekLast();
+        Segment next = openSegment(last == null ? 0 : last.id + 1);
+        segments.addLast(next);
+        return next;
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Path file = spillDirectory.resolve(String.format("%020d.spill", id));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, file, channel);
+        segment.size = channel.size();
+        return segment;
+    }
+
+    // End of a tick: write out this tick's schedules, record how far delivery got, and
+    // drop or compact segments that are (mostly) done. Doesn't throw: a failure here would
+    // otherwise kill the ticker and strand everything pending.
+    private void afterTick(long tick, boolean deliveredAny) {
+        try {
+            flush();
+            watermark = tick;
+            if (deliveredAny) {
+                // Stored in millis, so a restart with another tick length reads it right.
+                ByteBuffer mark = ByteBuffer.allocate(8).putLong(0, tick * tickMillis);
+                watermarkChannel.write(mark, 0);
+            }
+            while (segments.size() > 1 && segments.peekFirst().maxDeadlineTick <= watermark) {
+                delete(segments.pollFirst());
+            }
+            // More than half the spill is delivered records: move the oldest segment's
+            // live ones forward and delete it. At most one segment per tick, so a
+            // schedule() never waits for more than one segment's worth of copying.
+            if (segments.size() > 1 && spillBytes > 2 * liveBytes && spillBytes > 2 * segmentBytes) {
+                compact(segments.pollFirst());
+            }
+        } catch (IOException e) {
+            spillFailure = e;
+        }
+    }
+
+    private void compact(Segment segment) throws IOException {
+        ByteBuffer view = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+        Segment active = segments.peekLast();
+        while (view.remaining() >= HEADER_BYTES) {
+            int length = view.getInt(view.position());
+            long deliverAt = view.getLong(view.position() + HEADER_BYTES);
+            ByteBuffer record = view.slice(view.position(), HEADER_BYTES + length);
+            view.position(view.position() + HEADER_BYTES + length);
+            long deadlineTick = tickOf(deliverAt);
+            if (deadlineTick > watermark) {
+                if (writeBuffer.remaining() < record.remaining()) {
+                    flush();
+                }
+                if (record.remaining() > writeBuffer.capacity()) {
+                    write(active, record);
+                } else {
+                    writeBuffer.put(record);
+                }
+                active.maxDeadlineTick = Math.max(active.maxDeadlineTick, deadlineTick);
+                spillBytes += HEADER_BYTES + length;
+            }
+        }
+        flush();
+        delete(segment);
+    }
+
+    private void delete(Segment segment) throws IOException {
+        spillBytes -= segment.size;
+        segment.channel.close();
+        Files.deleteIfExists(segment.file);
+    }
+
+    // Reads the spill back: records due after the watermark go back on the wheel, or to
+    // `overdue` if their time passed while we were down. A torn record at the end of a
+    // segment (a crash mid-write) is cut off. New schedules go to a fresh segment.
+    private void recover(List<Entry> overdue) throws IOException {
+        Files.createDirectories(spillDirectory);
+        watermarkChannel = FileChannel.open(spillDirectory.resolve("watermark"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer mark = ByteBuffer.allocate(8);
+        long doneMillis = watermarkChannel.read(mark, 0) == 8 ? mark.getLong(0) : Long.MIN_VALUE;
+
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(spillDirectory)) {
+            listing.filter(p -> p.getFileName().toString().endsWith(".spill")).sorted().forEach(files::add);
+        }
+        CRC32 check = new CRC32();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Segment segment = openSegment(Long.parseLong(name.substring(0, name.length() - 6)));
+            ByteBuffer view = ByteBuffer.allocate((int) segment.size);
+            while (view.hasRemaining()) {
+                if (segment.channel.read(view, view.position()) < 0) {
+                    break;
+                }
+            }
+            view.flip();
+            long position = 0;
+            while (view.remaining() >= HEADER_BYTES) {
+                int length = view.getInt(view.position());
+                if (length < 8 || length > view.remaining() - HEADER_BYTES) {
+                    break;
+                }
+                check.reset();
+                check.update(view.array(), view.position() + HEADER_BYTES, length);
+                if ((int) check.getValue() != view.getInt(view.position() + 4)) {
+                    break;
+                }
+                int next = view.position() + HEADER_BYTES + length;
+                view.position(view.position() + HEADER_BYTES);
+                long deliverAt = view.getLong();
+                long deadlineTick = tickOf(deliverAt);
+                if (deliverAt > doneMillis) {
+                    String topic = getString(view);
+                    Message message = new Message(getString(view), getString(view));
+                    int headerCount = view.getInt();
+                    for (int i = 0; i < headerCount; i++) {
+                        message.getHeaders().put(getString(view), getString(view));
+                    }
+                    Entry entry = new Entry(topic, message, deliverAt, deadlineTick, HEADER_BYTES + length);
+                    if (deadlineTick >= base) {
+                        add(entry);
+                        pending++;
+                    } else {
+                        overdue.add(entry);
+                    }
+                    liveBytes += HEADER_BYTES + length;
+                    segment.maxDeadlineTick = Math.max(segment.maxDeadlineTick, deadlineTick);
+                }
+                view.position(next);
+                position = next;
+            }
+            if (position < segment.size) {
+                segment.channel.truncate(position);
+                segment.size = position;
+            }
+            spillBytes += segment.size;
+            segments.addLast(segment);
+        }
+        roll();
+    }
+
+    public synchronized long getPending() {
+        return pending;
+    }
+
+    public synchronized long getDelivered() {
+        return delivered;
+    }
+
+    // Bytes on disk, delivered records included until their segment is dropped.
+    public synchronized long getSpillBytes() {
+        return spillBytes;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    // Why the spill stopped, or null while it's fine.
+    public synchronized IOException getSpillFailure() {
+        return spillFailure;
+    }
+
+    // Stops delivering after the tick in progress; what's still pending stays in the spill
+    // for the next start.
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            running = false;
+        }
+        LockSupport.unpark(ticker);
+        // The spill can't be closed under the ticker's feet, so wait it out even if we're
+        // interrupted meanwhile.
+        boolean interrupted = false;
+        while (ticker.isAlive()) {
+            try {
+                ticker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (spillDirectory == null) {
+                return;
+            }
+            if (spillFailure != null) {
+                // Nothing more goes to disk; just let go of the files.
+                for (Segment segment : segments) {
+                    segment.channel.close();
+                }
+                watermarkChannel.close();
+                return;
+            }
+            flush();
+            for (Segment segment : segments) {
+                segment.channel.force(false);
+                segment.channel.close();
+            }
+            watermarkChannel.force(false);
+            watermarkChannel.close();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Delayed delivery (controller.publish(..., deliverAt) / ScheduledDelivery):
+//   1. Messages scheduled up to 2 s ahead on a durable controller, which is closed half way
+//      through and reopened on the same directory (a restart). Delivery resumes as soon as
+//      the controller is back, so the consumer resubscribes from the offset it got to, like
+//      after any restart of a durable topic. Every message must arrive exactly once and
+//      never before its time; this part also reports how late they were.
+//   2. PENDING messages scheduled over the next 24 hours: cost per schedule, in memory and
+//      spilled to disk, against a DelayQueue (a binary heap, like ScheduledExecutorService),
+//      and how long a restart takes to read them back.
+//   3. PENDING messages all due within 50 ms: how fast the wheel delivers them once due,
+//      against a thread taking them off the DelayQueue.
+// PENDING is sized for the default heap; tens of millions work with a bigger -Xmx.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.ScheduledDeliveryBenchmark
+public class ScheduledDeliveryBenchmark {
+
+    private static final int MESSAGES = 10_000;
+    private static final int PENDING = 2_000_000;
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    static final class DelayedMessage implements Delayed {
+        final Message message;
+        final long deliverAt;
+
+        DelayedMessage(Message message, long deliverAt) {
+            this.message = message;
+            this.deliverAt = deliverAt;
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deliverAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            return Long.compare(deliverAt, ((DelayedMessage) other).deliverAt);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()) {
+            @Override
+            public void println(String line) {
+            }
+        });
+        Path directory = Files.createTempDirectory("scheduled");
+        try {
+            restart(stdout, directory.resolve("restart"));
+            stdout.printf("%n%-28s %14s%n", PENDING + " pending over 24 h", "ns/schedule");
+            for (int round = 0; round < 2; round++) {
+                // First round is JIT warm-up, only the second is printed.
+                PrintStream out = round == 0 ? new PrintStream(OutputStream.nullOutputStream()) : stdout;
+                scheduleCost(out, null, "wheel, in memory");
+                scheduleCost(out, directory.resolve("spill" + round), "wheel, spilled");
+                delayQueueCost(out);
+            }
+            stdout.printf("%n%-28s %14s%n", PENDING + " due within 50 ms", "delivered/s");
+            wheelExpiry(stdout);
+            delayQueueExpiry(stdout);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+        System.setOut(stdout);
+    }
+
+    private static void restart(PrintStream stdout, Path directory) throws Exception {
+        Map<Integer, Integer> seen = new ConcurrentHashMap<>();
+        AtomicLong early = new AtomicLong();
+        AtomicLong maxLate = new AtomicLong();
+        AtomicLong nextOffset = new AtomicLong();
+        // Data is "<id>@<deliverAt>"; replays come from the topic log, which keeps no headers.
+        Consumer consumer = (topic, message) -> {
+            String[] parts = message.getData().split("@");
+            long late = System.currentTimeMillis() - Long.parseLong(parts[1]);
+            if (late < 0) {
+                early.incrementAndGet();
+            }
+            maxLate.accumulateAndGet(late, Math::max);
+            seen.merge(Integer.parseInt(parts[0]), 1, Integer::sum);
+            nextOffset.set(message.getOffset() + 1);
+        };
+
+        PubSubController controller = new PubSubController(directory, 1 << 20, FsyncPolicy.NEVER, 0);
+        controller.subscribe(consumer, "reminders");
+        Publisher publisher = new BasicPublisher();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < MESSAGES; i++) {
+            // A few already due, the rest spread over the next 2 seconds.
+            long deliverAt = start - 100 + (long) i * 2_100 / MESSAGES;
+            Message message = new Message(i + "@" + deliverAt);
+            controller.publish(publisher, "reminders", message, deliverAt);
+        }
+        Thread.sleep(1_000);
+        controller.close();
+        int beforeRestart = seen.size();
+
+        long reopened = System.nanoTime();
+        controller = new PubSubController(directory, 1 << 20, FsyncPolicy.NEVER, 0);
+        controller.subscribe(consumer, "reminders", nextOffset.get());
+        double reopenMillis = (System.nanoTime() - reopened) / 1e6;
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (seen.size() < MESSAGES && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        controller.close();
+
+        long duplicates = seen.values().stream().filter(count -> count > 1).count();
+        if (seen.size() != MESSAGES || duplicates > 0 || early.get() > 0) {
+            throw new IllegalStateException(seen.size() + " of " + MESSAGES + " delivered, " + duplicates
+                    + " twice, " + early.get() + " early");
+        }
+        stdout.printf("%d messages: %d delivered before the restart, %d after (reopen %.1f ms),%n"
+                        + "none lost, none twice, none early; at most %d ms late%n",
+                MESSAGES, beforeRestart, MESSAGES - beforeRestart, reopenMillis, maxLate.get());
+    }
+
+    // Delivery times in [0, range), scattered: in publish order a heap would only ever
+    // append, which is its best case, not what reminders and backoffs look like.
+    private static long spread(int i, long range) {
+        return Math.floorMod(i * 0x9E3779B97F4A7C15L, range);
+    }
+
+    private static Message[] messages() {
+        Message[] messages = new Message[PENDING];
+        for (int i = 0; i < PENDING; i++) {
+            messages[i] = new Message("order-" + (i % 1000), "payment-retry-" + i);
+        }
+        // Don't bill the previous run's garbage to the next one: with one core the JVM picks
+        // the serial collector, and a few hundred MB of it is a long pause.
+        System.gc();
+        return messages;
+    }
+
+    private static void scheduleCost(PrintStream out, Path spill, String label) throws IOException {
+        Message[] messages = messages();
+        ScheduledDelivery scheduled = new ScheduledDelivery((topic, message) -> { }, 100, spill, 64 * 1024 * 1024);
+        long now = System.currentTimeMillis() + 60_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < PENDING; i++) {
+            scheduled.schedule("payments", messages[i], now + spread(i, DAY_MILLIS));
+        }
+        double perSchedule = (System.nanoTime() - start) / (double) PENDING;
+        long spillBytes = scheduled.getSpillBytes();
+        scheduled.close();
+        if (spill == null) {
+            out.printf("%-28s %14.0f%n", label, perSchedule);
+            return;
+        }
+
+        long reopened = System.nanoTime();
+        ScheduledDelivery recovered = new ScheduledDelivery((topic, message) -> { }, 100, spill, 64 * 1024 * 1024);
+        double reopenSeconds = (System.nanoTime() - reopened) / 1e9;
+        if (recovered.getPending() != PENDING) {
+            throw new IllegalStateException(recovered.getPending() + " of " + PENDING + " back after restart");
+        }
+        recovered.close();
+        out.printf("%-28s %14.0f   (%.0f bytes/message on disk, restart reads them back in %.1f s)%n",
+                label, perSchedule, spillBytes / (double) PENDING, reopenSeconds);
+    }
+
+    private static void delayQueueCost(PrintStream out) {
+        Message[] messages = messages();
+        DelayQueue<DelayedMessage> queue = new DelayQueue<>();
+        long now = System.currentTimeMillis() + 60_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < PENDING; i++) {
+            queue.add(new DelayedMessage(messages[i], now + spread(i, DAY_MILLIS)));
+        }
+        double perSchedule = (System.nanoTime() - start) / (double) PENDING;
+        out.printf("%-28s %14.0f%n", "DelayQueue (binary heap)", perSchedule);
+    }
+
+    private static void wheelExpiry(PrintStream out) throws Exception {
+        Message[] messages = messages();
+        AtomicLong delivered = new AtomicLong();
+        AtomicLong last = new AtomicLong();
+        ScheduledDelivery scheduled = new ScheduledDelivery((topic, message) -> {
+            delivered.incrementAndGet();
+            last.set(System.nanoTime());
+        }, 10, null, 64 * 1024 * 1024);
+        long first = System.currentTimeMillis() + 2_000;
+        for (int i = 0; i < PENDING; i++) {
+            scheduled.schedule("payments", messages[i], first + spread(i, 50));
+        }
+        long dueFrom = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(first - System.currentTimeMillis());
+        while (delivered.get() < PENDING) {
+            Thread.sleep(10);
+        }
+        scheduled.close();
+        out.printf("%-28s %14.0f%n", "wheel, 10 ms ticks", PENDING / ((last.get() - dueFrom) / 1e9));
+    }
+
+    private static void delayQueueExpiry(PrintStream out) throws Exception {
+        Message[] messages = messages();
+        DelayQueue<DelayedMessage> queue = new DelayQueue<>();
+        long first = System.currentTimeMillis() + 2_000;
+        for (int i = 0; i < PENDING; i++) {
+            queue.add(new DelayedMessage(messages[i], first + spread(i, 50)));
+        }
+        long dueFrom = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(first - System.currentTimeMillis());
+        for (int i = 0; i < PENDING; i++) {
+            queue.take();
+        }
+        out.printf("%-28s %14.0f%n", "DelayQueue.take()", PENDING / ((System.nanoTime() - dueFrom) / 1e9));
+    }
+}
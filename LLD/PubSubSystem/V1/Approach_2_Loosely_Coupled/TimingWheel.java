@@ -0,0 +1,193 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Hashed timing wheel (as in Netty's HashedWheelTimer) for lots of timeouts that mostly get
+// cancelled, like ack deadlines. A ring of wheelSize buckets turns one bucket every tick;
+// a timeout goes in the bucket its deadline falls in, with the number of full turns still
+// to wait. Each tick only walks the bucket under the hand, so the cost is O(1) per timeout
+// however many are pending, where a ScheduledExecutorService pays O(log n) per schedule and
+// cancel on its heap.
+//
+// schedule() only appends to a lock-free queue; the ticker thread moves new timeouts into
+// their buckets at the next tick. Cancelling is free: a Timeout that says it's cancelled
+// is dropped when the hand reaches it. expire() runs on the ticker thread, so it should
+// only hand work off (to an executor), never do it.
+//
+// Precision is one tick: a timeout fires between its deadline and a tick after it.
+//
+// close() stops the ticker, which hands every timeout still pending to abandon() so owners
+// can let go of what they hold for it. A schedule() racing close() either throws or gets
+// its timeout abandoned, never neither.
+class TimingWheel implements AutoCloseable {
+
+    abstract static class Timeout {
+        Timeout next;
+        long deadlineNanos;
+        long rounds;
+
+        abstract boolean isCancelled();
+
+        abstract void expire();
+
+        // The wheel closed before this fired. Runs on the ticker thread, like expire().
+        abstract void abandon();
+    }
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private final Thread ticker;
+    private final LongAdder pending = new LongAdder();
+    private volatile boolean running = true;
+    private long tick;  // ticker thread only
+
+    public TimingWheel(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMillis must be positive and wheelSize a power of two: "
+                    + tickMillis + ", " + wheelSize);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.buckets = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+        this.ticker = new Thread(this::run, "timing-wheel");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    public void schedule(Timeout timeout, long delayMillis) {
+        if (!running) {
+            throw new IllegalStateException("TimingWheel is closed");
+        }
+        timeout.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        pending.increment();
+        added.add(timeout);
+        // Closed meanwhile: unless the ticker got to this one and abandoned it, back it out.
+        if (!running && added.remove(timeout)) {
+            pending.decrement();
+            throw new IllegalStateException("TimingWheel is closed");
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long nextTick = startNanos + (tick + 1) * tickNanos;
+            long wait = nextTick - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            transferAdded();
+            expireBucket((int) (tick & mask));
+            tick++;
+        }
+        abandonPending();
+    }
+
+    private void abandonPending() {
+        for (int i = 0; i < buckets.length; i++) {
+            Timeout timeout = buckets[i];
+            buckets[i] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                abandon(timeout);
+                timeout = next;
+            }
+        }
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            abandon(timeout);
+        }
+    }
+
+    private void abandon(Timeout timeout) {
+        pending.decrement();
+        if (!timeout.isCancelled()) {
+            try {
+                timeout.abandon();
+            } catch (RuntimeException e) {
+                // Same as expire(): one bad callback mustn't keep the rest.
+            }
+        }
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            // The tick the deadline falls in, but never one the hand has already passed.
+            long deadlineTick = Math.max((timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos, tick);
+            timeout.rounds = (deadlineTick - tick) / buckets.length;
+            int index = (int) (deadlineTick & mask);
+            timeout.next = buckets[index];
+            buckets[index] = timeout;
+        }
+    }
+
+    private void expireBucket(int index) {
+        Timeout previous = null;
+        Timeout timeout = buckets[index];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            boolean remove = false;
+            if (timeout.isCancelled()) {
+                remove = true;
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                remove = true;
+            }
+            if (remove) {
+                if (previous == null) {
+                    buckets[index] = next;
+                } else {
+                    previous.next = next;
+                }
+                timeout.next = null;
+                pending.decrement();
+                if (!timeout.isCancelled()) {
+                    try {
+                        timeout.expire();
+                    } catch (RuntimeException e) {
+                        // A broken callback mustn't stop the wheel.
+                    }
+                }
+            } else {
+                previous = timeout;
+            }
+            timeout = next;
+        }
+    }
+
+    // Timeouts scheduled and not yet expired or dropped after a cancel.
+    public long getPending() {
+        return pending.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(ticker);
+        if (Thread.currentThread() == ticker) {
+            // Closed from an expire(): the ticker abandons the rest once this tick is done.
+            return;
+        }
+        // Wait for it, so everything pending has been abandoned when close() returns.
+        boolean interrupted = false;
+        while (ticker.isAlive()) {
+            try {
+                ticker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
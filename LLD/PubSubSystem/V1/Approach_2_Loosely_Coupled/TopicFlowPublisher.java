@@ -0,0 +1,302 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A topic as a java.util.concurrent.Flow.Publisher, for code that speaks reactive streams.
+// Each Flow.Subscriber gets its own subscription, which joins the topic as a Consumer with
+// a bounded buffer, and only gets onNext for messages it asked for with request(n).
+//
+// Backpressure: when a subscriber stops requesting, its buffer fills up, and then `policy`
+// decides. BLOCK makes publishers to the topic wait until the subscriber requests more, so
+// a slow subscriber slows the producers down instead of growing the heap. DROP_OLDEST and
+// REJECT keep publishers going and drop for this subscriber instead (counted in getDropped).
+//
+// All signals to a subscriber (onSubscribe, onNext, onError, onComplete) run on `executor`,
+// one at a time: whoever bumps `wip` from 0 schedules the drain, and the drain keeps going
+// until nobody bumped it meanwhile. If the executor rejects the drain, it runs on the
+// thread that signalled instead.
+class TopicFlowPublisher implements Flow.Publisher<Message>, AutoCloseable {
+    private final Topic topic;
+    private final int bufferCapacity;
+    private final OverflowPolicy policy;
+    private final Executor executor;
+    private final Set<FlowSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    public TopicFlowPublisher(Topic topic, int bufferCapacity, OverflowPolicy policy, Executor executor) {
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException("bufferCapacity must be positive: " + bufferCapacity);
+        }
+        this.topic = topic;
+        this.bufferCapacity = bufferCapacity;
+        this.policy = policy;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Message> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        FlowSubscription subscription = new FlowSubscription(subscriber);
+        if (closed) {
+            subscription.complete();
+        } else {
+            subscriptions.add(subscription);
+            topic.subscribe(subscription);
+            // close() may have gone through `subscriptions` before we were in it: complete
+            // ourselves rather than stay on the topic with nobody left to finish us.
+            if (closed) {
+                subscription.complete();
+            }
+        }
+        subscription.signal();
+    }
+
+    // Stops taking messages from the topic. Each subscriber still gets what's already in
+    // its buffer (as it requests it), then onComplete.
+    @Override
+    public void close() {
+        closed = true;
+        for (FlowSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    public long getDropped() {
+        long total = 0;
+        for (FlowSubscription subscription : subscriptions) {
+            total += subscription.getDropped();
+        }
+        return total;
+    }
+
+    public int getBuffered() {
+        int total = 0;
+        for (FlowSubscription subscription : subscriptions) {
+            total += subscription.buffer.size();
+        }
+        return total;
+    }
+
+    private class FlowSubscription implements Flow.Subscription, Consumer {
+        private final Flow.Subscriber<? super Message> subscriber;
+        private final ArrayBlockingQueue<Message> buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        // Requested but not yet delivered; Long.MAX_VALUE means unbounded.
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong dropped = new AtomicLong();
+        private final Runnable drainTask = this::drain;
+        // BLOCK publishers wait on `space` for the drain to take a message, or for cancel or
+        // close; `blocked` lets the drain skip the monitor when nobody is waiting.
+        private final Object space = new Object();
+        private final AtomicInteger blocked = new AtomicInteger();
+
+        private boolean started;    // only touched by the drain
+        private volatile boolean done;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+        FlowSubscription(Flow.Subscriber<? super Message> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        // Called on the publisher's thread, like any Consumer.
+        public void onMessage(Topic topic, Message message) {
+            if (cancelled || done) {
+                return;
+            }
+            // Buffered messages are retained until onNext returns (see BinaryMessage).
+            message.retain();
+            switch (policy) {
+                case BLOCK:
+                    try {
+                        if (!put(message)) {
+                            message.release();
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped.incrementAndGet();
+                        message.release();
+                        return;
+                    }
+                    break;
+                case DROP_OLDEST:
+                    while (!buffer.offer(message)) {
+                        Message evicted = buffer.poll();
+                        if (evicted != null) {
+                            dropped.incrementAndGet();
+                            evicted.release();
+                        }
+                    }
+                    break;
+                case REJECT:
+                    if (!buffer.offer(message)) {
+                        dropped.incrementAndGet();
+                        message.release();
+                        return;
+                    }
+                    break;
+            }
+            // Cancelled or closed while we were adding it: cancel() may already have cleared
+            // the buffer, and a closed subscription takes nothing new, so take it back out.
+            // If the drain got to it first it has been released already.
+            if (cancelled || done) {
+                if (buffer.remove(message)) {
+                    message.release();
+                }
+                return;
+            }
+            signal();
+        }
+
+        // Waits for room in the buffer; false if the subscription was cancelled or closed
+        // first, so a subscriber that's gone or stopped requesting can't hold publishers.
+        private boolean put(Message message) throws InterruptedException {
+            if (buffer.offer(message)) {
+                return true;
+            }
+            synchronized (space) {
+                blocked.incrementAndGet();
+                try {
+                    while (!buffer.offer(message)) {
+                        if (cancelled || done) {
+                            return false;
+                        }
+                        space.wait();
+                    }
+                    return true;
+                } finally {
+                    blocked.decrementAndGet();
+                }
+            }
+        }
+
+        private void wakePublishers() {
+            if (blocked.get() > 0) {
+                synchronized (space) {
+                    space.notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Reactive streams rule 3.9: a bad request is the subscriber's error.
+                error = new IllegalArgumentException("request must be positive: " + n);
+                detach();
+            } else {
+                demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            detach();
+            clearBuffer();
+        }
+
+        private void clearBuffer() {
+            Message message;
+            while ((message = buffer.poll()) != null) {
+                message.release();
+            }
+            wakePublishers();
+        }
+
+        void complete() {
+            done = true;
+            topic.unsubscribe(this);
+            wakePublishers();
+            signal();
+        }
+
+        void signal() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(drainTask);
+                } catch (RejectedExecutionException e) {
+                    // Shut down or saturated. Drain here rather than leave `wip` above zero,
+                    // which would stop every later signal from scheduling a drain at all.
+                    drain();
+                }
+            }
+        }
+
+        private void detach() {
+            topic.unsubscribe(this);
+            subscriptions.remove(this);
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!started) {
+                    started = true;
+                    if (!call(() -> subscriber.onSubscribe(this))) {
+                        return;
+                    }
+                }
+                while (!cancelled && error == null && demand.get() > 0) {
+                    Message message = buffer.poll();
+                    if (message == null) {
+                        break;
+                    }
+                    wakePublishers();
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    boolean delivered = call(() -> subscriber.onNext(message));
+                    message.release();
+                    if (!delivered) {
+                        return;
+                    }
+                }
+                if (!cancelled && error != null) {
+                    cancelled = true;
+                    clearBuffer();
+                    Throwable failure = error;
+                    call(() -> subscriber.onError(failure));
+                    return;
+                }
+                if (!cancelled && done && buffer.isEmpty()) {
+                    cancelled = true;
+                    subscriptions.remove(this);
+                    call(subscriber::onComplete);
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        // A subscriber that throws has broken the contract (rule 2.13): drop it.
+        private boolean call(Runnable signal) {
+            try {
+                signal.run();
+                return true;
+            } catch (RuntimeException e) {
+                cancel();
+                return false;
+            }
+        }
+
+        long getDropped() {
+            return dropped.get();
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// When an append counts as durable.
+enum FsyncPolicy {
+    ALWAYS,     // append returns only after fsync; concurrent appenders share one fsync (group commit)
+    INTERVAL,   // fsync at most once per interval, piggybacked on appends; close() syncs the rest
+    NEVER       // leave it to the OS page cache; survives a process crash, not a power cut
+}
+
+// Append-only log behind a durable Topic, Kafka style: every message gets the next offset
+// (0, 1, 2, ...) and stays readable at that offset until the files are deleted.
+//
+// On disk it's a directory of segment files, each named after the first offset it holds
+// (00000000000000000000.log, 00000000000000012345.log, ...). A record is
+//   [int length][int crc32][int key length, -1 for none][key UTF-8][data UTF-8]
+// where length and crc cover everything after the crc, and its offset is implicit: the
+// segment's base offset + its position in the segment.
+// Once a segment passes segmentBytes a new one is started.
+//
+// Reads go through a read-only memory mapping of the segment, so a replay is a memory scan
+// with no read() calls. To find an offset without scanning the whole segment, each one
+// keeps a sparse index: one (offset, file position) entry every INDEX_INTERVAL_BYTES,
+// binary searched, then at most that many bytes scanned. The index lives in memory and is
+// rebuilt when the segment is opened; that same scan finds a torn write at the tail (bad
+// length or crc after a crash) and truncates it.
+class TopicLog implements Closeable {
+    private static final int HEADER_BYTES = 8;
+    private static final int INDEX_INTERVAL_BYTES = 4096;
+
+    private static final class Segment {
+        final long baseOffset;
+        final FileChannel channel;
+
+        // Written under the log's lock, read by anyone.
+        volatile long size;
+        volatile long nextOffset;
+
+        // Sparse index, guarded by the segment itself.
+        long[] indexOffsets = new long[16];
+        long[] indexPositions = new long[16];
+        int indexCount;
+        long lastIndexedPosition = -INDEX_INTERVAL_BYTES;
+
+        // Read view; remapped when a reader needs bytes past its end.
+        MappedByteBuffer mapped;
+
+        Segment(long baseOffset, FileChannel channel) {
+            this.baseOffset = baseOffset;
+            this.channel = channel;
+            this.nextOffset = baseOffset;
+        }
+
+        synchronized void maybeIndex(long offset, long position) {
+            if (position - lastIndexedPosition < INDEX_INTERVAL_BYTES) {
+                return;
+            }
+            if (indexCount == indexOffsets.length) {
+                indexOffsets = Arrays.copyOf(indexOffsets, indexCount * 2);
+                indexPositions = Arrays.copyOf(indexPositions, indexCount * 2);
+            }
+            indexOffsets[indexCount] = offset;
+            indexPositions[indexCount] = position;
+            indexCount++;
+            lastIndexedPosition = position;
+        }
+
+        // Closest indexed entry at or before `offset`, as {offset, position}.
+        synchronized long[] floor(long offset) {
+            int found = Arrays.binarySearch(indexOffsets, 0, indexCount, offset);
+            int at = found >= 0 ? found : -found - 2;
+            return at < 0 ? new long[] {baseOffset, 0} : new long[] {indexOffsets[at], indexPositions[at]};
+        }
+
+        synchronized ByteBuffer view(long upTo) throws IOException {
+            if (mapped == null || mapped.capacity() < upTo) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, upTo);
+            }
+            return mapped.duplicate();
+        }
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final FsyncPolicy policy;
+    private final long fsyncIntervalNanos;
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile Segment active;
+    private final CRC32 crc = new CRC32();
+
+    // Group commit state, guarded by `syncLock`.
+    private final Object syncLock = new Object();
+    private long durableOffset;
+    private boolean syncing;
+    private long lastSync = System.nanoTime();
+    private long syncCount;
+
+    public TopicLog(Path directory, long segmentBytes, FsyncPolicy policy, long fsyncIntervalMillis) throws IOException {
+        if (segmentBytes < INDEX_INTERVAL_BYTES) {
+            throw new IllegalArgumentException("segmentBytes must be at least " + INDEX_INTERVAL_BYTES + ": " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.policy = policy;
+        this.fsyncIntervalNanos = fsyncIntervalMillis * 1_000_000L;
+
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().forEach(files::add);
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Segment segment = open(Long.parseLong(name.substring(0, name.length() - 4)));
+            recover(segment);
+            segments.put(segment.baseOffset, segment);
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, open(0));
+        }
+        this.active = segments.lastEntry().getValue();
+        this.durableOffset = active.nextOffset;
+    }
+
+    // Appends and returns the message's offset. With FsyncPolicy.ALWAYS it's on disk when
+    // this returns.
+    public long append(Message message) {
+        long offset = write(message);
+        commit(offset);
+        return offset;
+    }
+
+    // The two halves of append, for callers that must assign offsets under their own lock
+    // but shouldn't hold it through an fsync (see Topic.publish): write() puts the record
+    // in the page cache, commit() then applies the fsync policy.
+    public long write(Message message) {
+        byte[] key = message.getKey() == null ? null : message.getKey().getBytes(StandardCharsets.UTF_8);
+        byte[] data = message.getData().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(HEADER_BYTES + 4 + (key == null ? 0 : key.length) + data.length);
+        payload.position(HEADER_BYTES);
+        payload.putInt(key == null ? -1 : key.length);
+        if (key != null) {
+            payload.put(key);
+        }
+        payload.put(data);
+        int length = payload.position() - HEADER_BYTES;
+
+        long offset;
+        synchronized (this) {
+            Segment segment = active;
+            if (segment.size >= segmentBytes) {
+                segment = roll();
+            }
+            crc.reset();
+            crc.update(payload.array(), HEADER_BYTES, length);
+            ByteBuffer record = payload.putInt(0, length).putInt(4, (int) crc.getValue()).flip();
+
+            long position = segment.size;
+            try {
+                while (record.hasRemaining()) {
+                    segment.channel.write(record, position + record.position());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            offset = segment.nextOffset;
+            segment.maybeIndex(offset, position);
+            segment.size = position + HEADER_BYTES + length;
+            segment.nextOffset = offset + 1;
+        }
+        return offset;
+    }
+
+    public void commit(long offset) {
+        if (policy == FsyncPolicy.ALWAYS) {
+            awaitDurable(offset + 1);
+        } else if (policy == FsyncPolicy.INTERVAL) {
+            boolean due;
+            synchronized (syncLock) {
+                due = !syncing && System.nanoTime() - lastSync >= fsyncIntervalNanos;
+            }
+            if (due) {
+                awaitDurable(offset + 1);
+            }
+        }
+    }
+
+    // Group commit: whoever finds no fsync in progress syncs everything written so far;
+    // everyone who appended meanwhile waits for that one fsync instead of issuing their own.
+    private void awaitDurable(long upTo) {
+        synchronized (syncLock) {
+            while (true) {
+                if (durableOffset >= upTo) {
+                    return;
+                }
+                if (!syncing) {
+                    break;
+                }
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for fsync", e);
+                }
+            }
+            syncing = true;
+        }
+
+        long target = endOffset();
+        try {
+            // Everything up to `target` is in this segment or in already-rolled ones, and
+            // roll() syncs a segment before leaving it.
+            active.channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            synchronized (syncLock) {
+                syncing = false;
+                durableOffset = Math.max(durableOffset, target);
+                lastSync = System.nanoTime();
+                syncCount++;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    // Up to maxMessages messages starting at `fromOffset`, each stamped with its offset.
+    // Returns an empty list at the end of the log.
+    public List<Message> read(long fromOffset, int maxMessages) {
+        List<Message> messages = new ArrayList<>();
+        long offset = Math.max(fromOffset, startOffset());
+
+        while (messages.size() < maxMessages) {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(offset);
+            if (entry == null) {
+                break;
+            }
+            Segment segment = entry.getValue();
+            long end = segment.nextOffset;
+            long size = segment.size;
+            if (offset >= end) {
+                if (segment == active) {
+                    break;
+                }
+                offset = end;
+                continue;
+            }
+
+            try {
+                ByteBuffer view = segment.view(size);
+                long[] floor = segment.floor(offset);
+                long at = floor[0];
+                view.position((int) floor[1]);
+                while (at < end && messages.size() < maxMessages) {
+                    int length = view.getInt();
+                    view.getInt();
+                    if (at >= offset) {
+                        int keyLength = view.getInt();
+                        String key = null;
+                        if (keyLength >= 0) {
+                            byte[] keyBytes = new byte[keyLength];
+                            view.get(keyBytes);
+                            key = new String(keyBytes, StandardCharsets.UTF_8);
+                        }
+                        byte[] data = new byte[length - 4 - Math.max(0, keyLength)];
+                        view.get(data);
+                        messages.add(new Message(key, new String(data, StandardCharsets.UTF_8), at));
+                    } else {
+                        view.position(view.position() + length);
+                    }
+                    at++;
+                }
+                offset = at;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return messages;
+    }
+
+    // Offset the next append will get.
+    public long endOffset() {
+        return active.nextOffset;
+    }
+
+    public long startOffset() {
+        return segments.firstKey();
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long getSyncCount() {
+        synchronized (syncLock) {
+            return syncCount;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        active.channel.force(false);
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+    }
+
+    private Segment roll() {
+        try {
+            active.channel.force(false);
+            Segment next = open(active.nextOffset);
+            segments.put(next.baseOffset, next);
+            active = next;
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Segment open(long baseOffset) throws IOException {
+        Path file = directory.resolve(String.format("%020d.log", baseOffset));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(baseOffset, channel);
+    }
+
+    // Scans a segment from the start: rebuilds its index and offsets, and cuts off a
+    // partially written record left by a crash.
+    private void recover(Segment segment) throws IOException {
+        long fileSize = segment.channel.size();
+        if (fileSize == 0) {
+            return;
+        }
+        ByteBuffer view = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        CRC32 check = new CRC32();
+        long position = 0;
+        long offset = segment.baseOffset;
+
+        while (position + HEADER_BYTES <= fileSize) {
+            int length = view.getInt((int) position);
+            if (length < 0 || position + HEADER_BYTES + length > fileSize) {
+                break;
+            }
+            check.reset();
+            ByteBuffer payload = view.duplicate();
+            payload.position((int) position + HEADER_BYTES).limit((int) (position + HEADER_BYTES + length));
+            check.update(payload);
+            if ((int) check.getValue() != view.getInt((int) position + 4)) {
+                break;
+            }
+            segment.maybeIndex(offset, position);
+            position += HEADER_BYTES + length;
+            offset++;
+        }
+
+        if (position < fileSize) {
+            segment.channel.truncate(position);
+        }
+        segment.size = position;
+        segment.nextOffset = offset;
+    }
+}
@@ -0,0 +1,131 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Publish throughput through PubSubController with 1..64 publisher threads, while another
+// thread keeps subscribing new consumers (and creating new topics) the whole time. With the
+// old HashMap/ArrayList registry this either threw ConcurrentModificationException or
+// silently lost topics; now publish is a lock-free map read plus an array walk.
+//
+// The controller's "Publishing message..." println is swallowed here so the numbers are
+// about the registry, not about stdout.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.TopicRegistryBenchmark
+public class TopicRegistryBenchmark {
+
+    private static final int TOPICS = 64;
+    private static final int CONSUMERS_PER_TOPIC = 4;
+    private static final long RUN_MILLIS = 500;
+
+    public static void main(String[] args) throws InterruptedException {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()) {
+            @Override
+            public void println(String line) {
+            }
+        });
+
+        PubSubController controller = new PubSubController();
+        String[] names = new String[TOPICS];
+        LongAdder delivered = new LongAdder();
+        Consumer counting = (topic, message) -> delivered.increment();
+        for (int i = 0; i < TOPICS; i++) {
+            names[i] = "topic-" + i;
+            for (int c = 0; c < CONSUMERS_PER_TOPIC; c++) {
+                controller.subscribe(counting, names[i]);
+            }
+        }
+
+        // Looking up an existing topic must not allocate.
+        long allocatedBefore = threadAllocatedBytes();
+        for (int i = 0; i < 1_000_000; i++) {
+            controller.createTopic(names[i % TOPICS]);
+        }
+        stdout.printf("existing-topic lookup: %.4f bytes/op%n", (threadAllocatedBytes() - allocatedBefore) / 1e6);
+
+        stdout.printf("%-8s %14s %14s %12s%n", "threads", "publishes/s", "deliveries/s", "subscribes");
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            run(stdout, controller, names, delivered, counting, threads);
+        }
+        System.setOut(stdout);
+    }
+
+    private static void run(PrintStream stdout, PubSubController controller, String[] names, LongAdder delivered,
+                            Consumer counting, int threads) throws InterruptedException {
+        Publisher publisher = new BasicPublisher();
+        Message message = new Message("hello");
+        LongAdder published = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch ready = new CountDownLatch(threads + 1);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads + 1);
+        long deliveredBefore = delivered.sum();
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ready.countDown();
+                awaitQuietly(go);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while (!stop.get()) {
+                    controller.publish(publisher, names[random.nextInt(TOPICS)], message);
+                    count++;
+                }
+                published.add(count);
+                done.countDown();
+            }).start();
+        }
+
+        // Subscription churn: brand new topics, plus one more consumer on each existing
+        // topic (capped so later rounds don't fan out to ever more consumers).
+        int[] subscribes = new int[1];
+        new Thread(() -> {
+            ready.countDown();
+            awaitQuietly(go);
+            while (!stop.get()) {
+                controller.subscribe(counting, "churn-" + subscribes[0]);
+                if (subscribes[0] < TOPICS) {
+                    controller.subscribe((topic, m) -> { }, names[subscribes[0]]);
+                }
+                subscribes[0]++;
+                Thread.yield();
+            }
+            done.countDown();
+        }).start();
+
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        Thread.sleep(RUN_MILLIS);
+        stop.set(true);
+        // Measured to when stop was raised, not to RUN_MILLIS: with 64 threads on a few
+        // cores the sleeping main thread can wake up late.
+        double seconds = (System.nanoTime() - start) / 1e9;
+        done.await();
+
+        stdout.printf("%-8d %14.0f %14.0f %12d%n", threads,
+                published.sum() / seconds, (delivered.sum() - deliveredBefore) / seconds, subscribes[0]);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
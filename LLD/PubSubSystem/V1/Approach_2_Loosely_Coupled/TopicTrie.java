@@ -0,0 +1,145 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Wildcard subscriptions over hierarchical topic names. Names are dot separated
+// ("orders.eu.created"); a subscription pattern may use, as whole segments:
+//   *  exactly one segment     orders.*.created  matches orders.eu.created
+//   #  zero or more segments   metrics.#         matches metrics, metrics.cpu, metrics.cpu.host1
+//
+// Patterns are stored in a trie keyed by segment, with the two wildcards as separate
+// children of each node. Matching a concrete topic walks its segments down the trie
+// (following the literal child, the * child and the # child at each level), so the cost
+// depends on the depth of the name and the wildcards actually on the path, not on how many
+// subscriptions exist.
+//
+// Topics cache their match (see Topic.wildcardConsumers); `version` bumps on every change
+// here, which is how they know their cached copy is stale.
+class TopicTrie {
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        Node star;
+        Node hash;
+        Consumer[] consumers = new Consumer[0];
+
+        boolean isEmpty() {
+            return children.isEmpty() && star == null && hash == null && consumers.length == 0;
+        }
+    }
+
+    private final Node root = new Node();
+    private volatile long version;
+
+    static boolean isPattern(String topic_name) {
+        for (String segment : topic_name.split("\\.", -1)) {
+            if (segment.equals("*") || segment.equals("#")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void subscribe(Consumer consumer, String pattern) {
+        Node node = root;
+        for (String segment : segments(pattern)) {
+            if (segment.equals("*")) {
+                node = node.star != null ? node.star : (node.star = new Node());
+            } else if (segment.equals("#")) {
+                node = node.hash != null ? node.hash : (node.hash = new Node());
+            } else {
+                node = node.children.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        Consumer[] next = Arrays.copyOf(node.consumers, node.consumers.length + 1);
+        next[node.consumers.length] = consumer;
+        node.consumers = next;
+        version++;
+    }
+
+    public synchronized void unsubscribe(Consumer consumer, String pattern) {
+        if (remove(root, segments(pattern), 0, consumer)) {
+            version++;
+        }
+    }
+
+    // Everyone whose pattern matches the concrete topic name, each consumer once even if
+    // several of its patterns match.
+    public synchronized Consumer[] match(String topic_name) {
+        Set<Consumer> matched = new LinkedHashSet<>();
+        collect(root, topic_name.split("\\.", -1), 0, matched);
+        return matched.toArray(new Consumer[0]);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    private static void collect(Node node, String[] segments, int i, Set<Consumer> matched) {
+        if (node.hash != null) {
+            // # swallows zero or more segments: try resuming after each possible number.
+            for (int j = i; j <= segments.length; j++) {
+                collect(node.hash, segments, j, matched);
+            }
+        }
+        if (i == segments.length) {
+            matched.addAll(Arrays.asList(node.consumers));
+            return;
+        }
+        Node literal = node.children.get(segments[i]);
+        if (literal != null) {
+            collect(literal, segments, i + 1, matched);
+        }
+        if (node.star != null) {
+            collect(node.star, segments, i + 1, matched);
+        }
+    }
+
+    // Removes the consumer and prunes nodes left empty. Returns whether it was there.
+    private static boolean remove(Node node, String[] segments, int i, Consumer consumer) {
+        if (i == segments.length) {
+            for (int c = 0; c < node.consumers.length; c++) {
+                if (node.consumers[c] == consumer) {
+                    Consumer[] next = new Consumer[node.consumers.length - 1];
+                    System.arraycopy(node.consumers, 0, next, 0, c);
+                    System.arraycopy(node.consumers, c + 1, next, c, next.length - c);
+                    node.consumers = next;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String segment = segments[i];
+        Node child = segment.equals("*") ? node.star : segment.equals("#") ? node.hash : node.children.get(segment);
+        if (child == null || !remove(child, segments, i + 1, consumer)) {
+            return false;
+        }
+        if (child.isEmpty()) {
+            if (segment.equals("*")) {
+                node.star = null;
+            } else if (segment.equals("#")) {
+                node.hash = null;
+            } else {
+                node.children.remove(segment);
+            }
+        }
+        return true;
+    }
+
+    private static String[] segments(String pattern) {
+        String[] segments = pattern.split("\\.", -1);
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                throw new IllegalArgumentException("Empty segment in topic pattern: " + pattern);
+            }
+            if (segment.length() > 1 && (segment.contains("*") || segment.contains("#"))) {
+                throw new IllegalArgumentException("Wildcards must be whole segments: " + pattern);
+            }
+        }
+        return segments;
+    }
+}
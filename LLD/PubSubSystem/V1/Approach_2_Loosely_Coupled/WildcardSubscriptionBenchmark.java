@@ -0,0 +1,159 @@
+package LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Wildcard subscriptions (TopicTrie):
+//   1. correctness: random patterns with * and # against random topic names, compared with
+//      a plain recursive matcher that tries every pattern.
+//   2. cost per publish as subscriptions grow from 1k to 100k: a cached publish, an uncached
+//      trie walk, and the naive scan over every pattern for comparison. The first two should
+//      stay flat; the scan grows linearly.
+//
+// Run: java LLD.PubSubSystem.V1.Approach_2_Loosely_Coupled.WildcardSubscriptionBenchmark
+public class WildcardSubscriptionBenchmark {
+
+    public static void main(String[] args) {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()) {
+            @Override
+            public void println(String line) {
+            }
+        });
+        checkAgainstNaive(stdout);
+
+        stdout.printf("%-14s %12s %12s %12s %8s%n", "subscriptions", "cached ns", "trie ns", "scan ns", "matched");
+        for (int n = 1_000; n <= 100_000; n *= 10) {
+            cost(stdout, n);
+        }
+        System.setOut(stdout);
+    }
+
+    private static void checkAgainstNaive(PrintStream stdout) {
+        Random random = new Random(7);
+        String[] words = {"a", "b", "c"};
+        TopicTrie trie = new TopicTrie();
+        List<String> patterns = new ArrayList<>();
+        List<Consumer> consumers = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            int depth = 1 + random.nextInt(4);
+            String[] segments = new String[depth];
+            for (int s = 0; s < depth; s++) {
+                int pick = random.nextInt(5);
+                segments[s] = pick == 3 ? "*" : pick == 4 ? "#" : words[pick];
+            }
+            String pattern = String.join(".", segments);
+            Consumer consumer = (topic, message) -> { };
+            trie.subscribe(consumer, pattern);
+            patterns.add(pattern);
+            consumers.add(consumer);
+        }
+        // Unsubscribe a few so pruning is exercised too.
+        for (int i = 0; i < 50; i++) {
+            trie.unsubscribe(consumers.get(i), patterns.get(i));
+        }
+
+        int checked = 0;
+        for (int i = 0; i < 5_000; i++) {
+            int depth = 1 + random.nextInt(5);
+            String[] segments = new String[depth];
+            for (int s = 0; s < depth; s++) {
+                segments[s] = words[random.nextInt(words.length)];
+            }
+            Set<Consumer> expected = new HashSet<>();
+            for (int p = 50; p < patterns.size(); p++) {
+                if (naiveMatch(patterns.get(p).split("\\."), 0, segments, 0)) {
+                    expected.add(consumers.get(p));
+                }
+            }
+            Set<Consumer> actual = new HashSet<>(Arrays.asList(trie.match(String.join(".", segments))));
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("Mismatch for " + String.join(".", segments));
+            }
+            checked++;
+        }
+        stdout.printf("trie agrees with naive matcher on %d random topics (450 patterns)%n", checked);
+    }
+
+    private static void cost(PrintStream stdout, int subscriptions) {
+        PubSubController controller = new PubSubController();
+        TopicTrie trie = new TopicTrie();
+        String[][] patterns = new String[subscriptions][];
+        int[] delivered = new int[1];
+
+        // Mostly literal patterns, every 10th with a *, every 1000th a #. The published topic
+        // matches the same one (svc0.#) whatever the total, so only the total changes.
+        for (int i = 0; i < subscriptions; i++) {
+            String pattern = i % 1000 == 0 ? "svc" + (i / 1000) + ".#"
+                    : i % 10 == 0 ? "svc" + (i % 100) + ".*.event" + (i / 100)
+                    : "svc" + (i % 100) + ".region" + (i % 7) + ".event" + (i / 700);
+            // Capturing, so every subscription is a distinct consumer.
+            Consumer consumer = (topic, message) -> delivered[0]++;
+            controller.subscribe(consumer, pattern);
+            trie.subscribe(consumer, pattern);
+            patterns[i] = pattern.split("\\.");
+        }
+
+        String topicName = "svc0.region0.event0";
+        String[] topicSegments = topicName.split("\\.");
+        Message message = new Message("x");
+        Publisher publisher = new BasicPublisher();
+        int rounds = 200_000;
+
+        for (int i = 0; i < rounds; i++) {
+            controller.publish(publisher, topicName, message);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            controller.publish(publisher, topicName, message);
+        }
+        double cached = (System.nanoTime() - start) / (double) rounds;
+
+        int walks = 20_000;
+        int sink = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < walks; i++) {
+            sink += trie.match(topicName).length;
+        }
+        double walk = (System.nanoTime() - start) / (double) walks;
+
+        int scans = Math.max(20, 2_000_000 / subscriptions);
+        start = System.nanoTime();
+        for (int i = 0; i < scans; i++) {
+            for (String[] pattern : patterns) {
+                if (naiveMatch(pattern, 0, topicSegments, 0)) {
+                    sink++;
+                }
+            }
+        }
+        double scan = (System.nanoTime() - start) / (double) scans;
+
+        stdout.printf("%-14d %12.0f %12.0f %12.0f %8d%n", subscriptions, cached, walk, scan,
+                sink == 0 ? 0 : trie.match(topicName).length);
+    }
+
+    private static boolean naiveMatch(String[] pattern, int p, String[] topic, int t) {
+        if (p == pattern.length) {
+            return t == topic.length;
+        }
+        if (pattern[p].equals("#")) {
+            for (int skip = t; skip <= topic.length; skip++) {
+                if (naiveMatch(pattern, p + 1, topic, skip)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (t == topic.length) {
+            return false;
+        }
+        return (pattern[p].equals("*") || pattern[p].equals(topic[t])) && naiveMatch(pattern, p + 1, topic, t + 1);
+    }
+}
@@ -0,0 +1,198 @@
+package LLD.RateLimiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Limits how many requests are in flight to a downstream service, and finds that limit by
+// itself from measured round-trip times instead of a fixed maxToken/refillRatePerSecond.
+//
+// The idea (Little's law): while the backend keeps up, latency stays flat no matter how
+// many requests are in flight. Once it's saturated, extra in-flight requests just queue
+// and latency climbs. So grow the limit while latency is fine and cut it when latency
+// (or errors) say the backend is queueing.
+//
+// Usage, one release per admitted request:
+//
+//   if (!limiter.tryAcquire()) { reject; }
+//   long start = System.nanoTime();
+//   try { call(); limiter.release(System.nanoTime() - start, false); }
+//   catch (TimeoutException e) { limiter.release(System.nanoTime() - start, true); }
+//
+// The in-flight counter is a single CAS, and samples are folded into a small window with
+// atomics; only the thread that closes a window runs the limit algorithm.
+public class AdaptiveConcurrencyLimiter {
+
+    public interface LimitAlgorithm {
+        int initialLimit();
+
+        // Called once per sample window. Returns the new limit.
+        int update(int limit, long averageRttNanos, int maxInFlight, boolean dropped);
+    }
+
+    // Additive increase, multiplicative decrease, like TCP congestion control: +1 per good
+    // window while the limit is actually being used, times backoffRatio on a drop. A
+    // request slower than timeoutNanos counts as a drop.
+    public static class AimdLimit implements LimitAlgorithm {
+        private final int initialLimit;
+        private final int minLimit;
+        private final int maxLimit;
+        private final double backoffRatio;
+        private final long timeoutNanos;
+
+        public AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long timeoutNanos) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.backoffRatio = backoffRatio;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        @Override
+        public int initialLimit() {
+            return initialLimit;
+        }
+
+        @Override
+        public int update(int limit, long averageRttNanos, int maxInFlight, boolean dropped) {
+            if (dropped || averageRttNanos > timeoutNanos) {
+                return Math.max(minLimit, (int) (limit * backoffRatio));
+            }
+            // Don't grow a limit nobody is hitting; it would just be headroom for a burst.
+            if (maxInFlight * 2 >= limit) {
+                return Math.min(maxLimit, limit + 1);
+            }
+            return limit;
+        }
+    }
+
+    // Compares the latest window's RTT with a slow-moving long-term RTT. Their ratio (the
+    // gradient) is ~1 while the backend keeps up and drops below 1 as queueing adds delay,
+    // so it scales the limit down in proportion to how much queueing there is. A small
+    // queue allowance (sqrt of the limit) keeps probing for more capacity.
+    public static class GradientLimit implements LimitAlgorithm {
+        private final int initialLimit;
+        private final int minLimit;
+        private final int maxLimit;
+        private final double tolerance;
+        private final double smoothing;
+        private final int longWindow;
+
+        private double estimatedLimit;
+        private double longRtt;
+
+        public GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+            this(initialLimit, minLimit, maxLimit, 1.5, 0.2, 100);
+        }
+
+        // tolerance: how much worse than long-term the RTT may get before backing off.
+        // smoothing: how far each window moves the limit towards the new estimate.
+        // longWindow: windows averaged into the long-term RTT.
+        public GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing, int longWindow) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.tolerance = tolerance;
+            this.smoothing = smoothing;
+            this.longWindow = longWindow;
+            this.estimatedLimit = initialLimit;
+        }
+
+        @Override
+        public int initialLimit() {
+            return initialLimit;
+        }
+
+        @Override
+        public synchronized int update(int limit, long averageRttNanos, int maxInFlight, boolean dropped) {
+            double shortRtt = averageRttNanos;
+            longRtt = longRtt == 0 ? shortRtt : longRtt + (shortRtt - longRtt) / longWindow;
+
+            // After a long overload the long-term RTT has crept up too; pull it back so
+            // recovery isn't judged against the congested baseline.
+            if (longRtt / shortRtt > 2) {
+                longRtt *= 0.95;
+            }
+
+            // App-limited: we aren't using the limit, so RTTs say nothing about it.
+            if (maxInFlight < estimatedLimit / 2) {
+                return (int) estimatedLimit;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+            double queueSize = Math.sqrt(estimatedLimit);
+            double newLimit = estimatedLimit * gradient + queueSize;
+            newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            return (int) estimatedLimit;
+        }
+    }
+
+    private final LimitAlgorithm algorithm;
+    private final int windowSize;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Current sample window.
+    private final AtomicInteger samples = new AtomicInteger();
+    private final AtomicLong rttSum = new AtomicLong();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile boolean droppedInWindow;
+
+    public AdaptiveConcurrencyLimiter(LimitAlgorithm algorithm) {
+        this(algorithm, 50);
+    }
+
+    public AdaptiveConcurrencyLimiter(LimitAlgorithm algorithm, int windowSize) {
+        this.algorithm = algorithm;
+        this.windowSize = windowSize;
+        this.limit = algorithm.initialLimit();
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                int seen = maxInFlight.get();
+                while (current + 1 > seen && !maxInFlight.compareAndSet(seen, current + 1)) {
+                    seen = maxInFlight.get();
+                }
+                return true;
+            }
+        }
+    }
+
+    // Must be called exactly once for every successful tryAcquire. `dropped` means the
+    // call failed in a way that signals overload (timeout, 503, ...); plain application
+    // errors should pass false.
+    public void release(long rttNanos, boolean dropped) {
+        inFlight.decrementAndGet();
+
+        if (dropped) {
+            droppedInWindow = true;
+        }
+        rttSum.addAndGet(rttNanos);
+
+        // Exactly one thread sees the window fill up, and it alone runs the algorithm.
+        if (samples.incrementAndGet() == windowSize) {
+            long sum = rttSum.getAndSet(0);
+            int peak = maxInFlight.getAndSet(inFlight.get());
+            boolean anyDropped = droppedInWindow;
+            droppedInWindow = false;
+            samples.set(0);
+
+            limit = Math.max(1, algorithm.update(limit, sum / windowSize, peak, anyDropped));
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,182 @@
+package LLD.RateLimiter;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Simulated backend for comparing a static token bucket with AdaptiveConcurrencyLimiter.
+// Everything runs on a virtual clock (discrete-event simulation), so 30 simulated seconds
+// take well under a second and every run gives the same numbers.
+//
+// Backend: SERVERS workers in front of an unbounded FIFO queue, exponential service times.
+// Offered load is a steady OFFERED_RPS. Midway the backend degrades (service time x3, think
+// GC or a slow dependency), so its capacity drops below the offered load, then recovers.
+//
+// The static bucket was sized for the healthy backend. When capacity drops it keeps
+// admitting the same rate, the queue grows without bound and so does p99. The adaptive
+// limiters see RTT go up, shrink the in-flight limit and reject the excess instead, so the
+// requests they do admit keep a bounded latency.
+//
+// Run: java LLD.RateLimiter.AdaptiveConcurrencySimulation
+public class AdaptiveConcurrencySimulation {
+
+    private static final int SERVERS = 20;
+    private static final double HEALTHY_SERVICE_MS = 10;     // capacity 2000 rps
+    private static final double DEGRADED_SERVICE_MS = 30;    // capacity ~667 rps
+    private static final int OFFERED_RPS = 1_200;
+
+    private static final long SECOND = 1_000_000_000L;
+    // Backend calls slower than this are treated as timeouts, i.e. drops.
+    private static final long TIMEOUT_NANOS = 200_000_000L;
+    private static final long[] PHASE_ENDS = {10 * SECOND, 20 * SECOND, 30 * SECOND};
+    private static final String[] PHASE_NAMES = {"healthy", "degraded", "recovered"};
+
+    interface Admission {
+        boolean tryAcquire();
+
+        void release(long rttNanos);
+    }
+
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        final boolean arrival;
+        final long arrivedAt;
+
+        Event(long time, boolean arrival, long arrivedAt) {
+            this.time = time;
+            this.arrival = arrival;
+            this.arrivedAt = arrivedAt;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            return Long.compare(time, other.time);
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%-12s %-10s %9s %9s %9s %9s %8s%n",
+                "limiter", "phase", "admitted", "rejected", "p50 ms", "p99 ms", "limit");
+
+        AtomicLong clock = new AtomicLong();
+        run("none", clock, new Admission() {
+            public boolean tryAcquire() { return true; }
+            public void release(long rttNanos) { }
+        }, null);
+
+        // Sized for the healthy backend with some headroom: 1500 rps, burst of 100.
+        clock.set(0);
+        ConcurrentTokenBucketRateLimiter bucket = new ConcurrentTokenBucketRateLimiter(100, 1_500, clock::get);
+        run("static", clock, new Admission() {
+            public boolean tryAcquire() { return bucket.allowRequest(); }
+            public void release(long rttNanos) { }
+        }, null);
+
+        run("aimd", clock, null, new AdaptiveConcurrencyLimiter(new AdaptiveConcurrencyLimiter.AimdLimit(20, 5, 200, 0.9, TIMEOUT_NANOS)));
+        run("gradient", clock, null, new AdaptiveConcurrencyLimiter(new AdaptiveConcurrencyLimiter.GradientLimit(20, 5, 200)));
+    }
+
+    private static void run(String name, AtomicLong clock, Admission admission, AdaptiveConcurrencyLimiter adaptive) {
+        if (adaptive != null) {
+            admission = new Admission() {
+                public boolean tryAcquire() { return adaptive.tryAcquire(); }
+                public void release(long rttNanos) { adaptive.release(rttNanos, rttNanos > TIMEOUT_NANOS); }
+            };
+        }
+
+        Random random = new Random(1);
+        PriorityQueue<Event> events = new PriorityQueue<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        int busy = 0;
+
+        int phase = 0;
+        long[][] latencies = new long[PHASE_ENDS.length][];
+        int[] latencyCount = new int[PHASE_ENDS.length];
+        int[] rejected = new int[PHASE_ENDS.length];
+        int[] limitAtEnd = new int[PHASE_ENDS.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new long[OFFERED_RPS * 15];
+        }
+
+        events.add(new Event(0, true, 0));
+        long end = PHASE_ENDS[PHASE_ENDS.length - 1];
+
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            long now = event.time;
+            clock.set(now);
+            while (phase < PHASE_ENDS.length - 1 && now >= PHASE_ENDS[phase]) {
+                limitAtEnd[phase] = adaptive != null ? adaptive.getLimit() : 0;
+                phase++;
+            }
+
+            if (event.arrival) {
+                if (now >= end) {
+                    continue;
+                }
+                events.add(new Event(now + exponential(random, SECOND / (double) OFFERED_RPS), true, 0));
+
+                if (!admission.tryAcquire()) {
+                    rejected[phase]++;
+                } else if (busy < SERVERS) {
+                    busy++;
+                    events.add(new Event(now + serviceTime(random, now), false, now));
+                } else {
+                    queue.add(now);
+                }
+            } else {
+                long rtt = now - event.arrivedAt;
+                admission.release(rtt);
+                int arrivedPhase = phaseOf(event.arrivedAt);
+                if (latencyCount[arrivedPhase] < latencies[arrivedPhase].length) {
+                    latencies[arrivedPhase][latencyCount[arrivedPhase]++] = rtt;
+                }
+
+                Long next = queue.poll();
+                if (next != null) {
+                    events.add(new Event(now + serviceTime(random, now), false, next));
+                } else {
+                    busy--;
+                }
+            }
+        }
+        limitAtEnd[PHASE_ENDS.length - 1] = adaptive != null ? adaptive.getLimit() : 0;
+
+        for (int p = 0; p < PHASE_ENDS.length; p++) {
+            long[] sorted = Arrays.copyOf(latencies[p], latencyCount[p]);
+            Arrays.sort(sorted);
+            System.out.printf("%-12s %-10s %9d %9d %9.1f %9.1f %8s%n",
+                    name, PHASE_NAMES[p], sorted.length, rejected[p],
+                    percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6,
+                    adaptive != null ? String.valueOf(limitAtEnd[p]) : "-");
+        }
+    }
+
+    private static long serviceTime(Random random, long now) {
+        boolean degraded = now >= PHASE_ENDS[0] && now < PHASE_ENDS[1];
+        double meanMs = degraded ? DEGRADED_SERVICE_MS : HEALTHY_SERVICE_MS;
+        return exponential(random, meanMs * 1_000_000);
+    }
+
+    private static long exponential(Random random, double mean) {
+        return Math.max(1, (long) (-Math.log(1 - random.nextDouble()) * mean));
+    }
+
+    private static int phaseOf(long time) {
+        for (int p = 0; p < PHASE_ENDS.length; p++) {
+            if (time < PHASE_ENDS[p]) {
+                return p;
+            }
+        }
+        return PHASE_ENDS.length - 1;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
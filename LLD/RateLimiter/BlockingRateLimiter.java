@@ -0,0 +1,214 @@
+package LLD.RateLimiter;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Adds waiting to any RateLimiter, so callers don't have to sleep-and-retry like the
+// Thread.sleep(100) loop in TokenBucketRateLimiterExample.
+//
+//   acquire(permits, timeout) - parks the caller until its permits are granted
+//   acquireAsync(permits)     - returns a CompletableFuture completed when granted
+//
+// Both go through one FIFO queue of waiters served by a single scheduler thread. The
+// scheduler asks the limiter how long until the head's permits exist
+// (nanosUntilAvailable), parks exactly that long, grants, and moves on. Nobody spins and
+// nobody polls, so thousands of parked waiters cost nothing but their queue entry.
+//
+// Grants are strictly in arrival order: tryAcquire on this class refuses to jump the
+// queue while anyone is waiting, and a big request at the head holds back smaller ones
+// behind it rather than letting them starve it.
+public class BlockingRateLimiter implements RateLimiter, AutoCloseable {
+
+    private static final int WAITING = 0, CLAIMED = 1, GRANTED = 2, CANCELLED = 3;
+
+    // The future is the waiter. Cancelling it (directly, or via an acquire timeout) only
+    // works while it's still WAITING; CLAIMED is the short window in which the scheduler
+    // is calling tryAcquire for it, so a cancel has to wait for that to resolve.
+    private final class Waiter extends CompletableFuture<Void> {
+        final int permits;
+        final boolean async;
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Waiter(int permits, boolean async) {
+            this.permits = permits;
+            this.async = async;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            while (true) {
+                if (state.compareAndSet(WAITING, CANCELLED)) {
+                    super.cancel(mayInterruptIfRunning);
+                    // If we were at the head the scheduler may be parked for our permits.
+                    LockSupport.unpark(scheduler);
+                    return true;
+                }
+                if (state.get() != CLAIMED) {
+                    return state.get() == CANCELLED;
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private final RateLimiter limiter;
+    private final Executor asyncExecutor;
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final Thread scheduler;
+    private volatile boolean closed;
+
+    public BlockingRateLimiter(RateLimiter limiter) {
+        this(limiter, ForkJoinPool.commonPool());
+    }
+
+    // asyncExecutor runs the completion of acquireAsync futures, so callbacks chained on
+    // them never run on (and stall) the scheduler thread.
+    public BlockingRateLimiter(RateLimiter limiter, Executor asyncExecutor) {
+        this.limiter = limiter;
+        this.asyncExecutor = asyncExecutor;
+        this.scheduler = new Thread(this::schedule, "rate-limiter-scheduler");
+        this.scheduler.setDaemon(true);
+        this.scheduler.start();
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        // Don't barge past threads that are already waiting.
+        return waiters.isEmpty() && limiter.tryAcquire(permits);
+    }
+
+    @Override
+    public int availablePermits() {
+        return waiters.isEmpty() ? limiter.availablePermits() : 0;
+    }
+
+    @Override
+    public long nanosUntilAvailable(int permits) {
+        return limiter.nanosUntilAvailable(permits);
+    }
+
+    public boolean acquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        if (tryAcquire(permits)) {
+            return true;
+        }
+        Waiter waiter = enqueue(permits, false);
+        try {
+            waiter.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            // cancel() fails if the scheduler granted us in the meantime, and then we
+            // hold the permits after all.
+            return !waiter.cancel(false);
+        } catch (InterruptedException e) {
+            if (!waiter.cancel(false)) {
+                Thread.currentThread().interrupt();
+                return true;
+            }
+            throw e;
+        } catch (CancellationException | ExecutionException e) {
+            throw new IllegalStateException("Rate limiter closed while waiting", e);
+        }
+    }
+
+    public void acquire(int permits) throws InterruptedException {
+        acquire(permits, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    public CompletableFuture<Void> acquireAsync(int permits) {
+        if (tryAcquire(permits)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return enqueue(permits, true);
+    }
+
+    public int getQueueLength() {
+        return waiters.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(scheduler);
+    }
+
+    private Waiter enqueue(int permits, boolean async) {
+        if (closed) {
+            throw new IllegalStateException("Rate limiter is closed");
+        }
+        // Validate up front, the scheduler thread is the wrong place to find out.
+        limiter.nanosUntilAvailable(permits);
+
+        Waiter waiter = new Waiter(permits, async);
+        waiters.add(waiter);
+        // close() may have come in since the check above, and the scheduler's final drain
+        // may already be over; then nobody else will ever complete this waiter. If the drain
+        // does see it, remove() fails and the drain fails it instead.
+        if (closed && waiters.remove(waiter)) {
+            failClosed(waiter);
+            return waiter;
+        }
+        LockSupport.unpark(scheduler);
+        return waiter;
+    }
+
+    private static void failClosed(Waiter waiter) {
+        if (waiter.state.compareAndSet(WAITING, CANCELLED)) {
+            waiter.completeExceptionally(new IllegalStateException("Rate limiter closed"));
+        }
+    }
+
+    private void schedule() {
+        while (!closed) {
+            Waiter head = waiters.peek();
+            if (head == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            if (head.state.get() == CANCELLED) {
+                waiters.remove(head);
+                continue;
+            }
+
+            long wait = limiter.nanosUntilAvailable(head.permits);
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+
+            if (!head.state.compareAndSet(WAITING, CLAIMED)) {
+                continue;
+            }
+            if (limiter.tryAcquire(head.permits)) {
+                head.state.set(GRANTED);
+                waiters.remove(head);
+                grant(head);
+            } else {
+                // Somebody using the wrapped limiter directly got there first. Back off
+                // and recompute the wait.
+                head.state.set(WAITING);
+            }
+        }
+
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            failClosed(waiter);
+        }
+    }
+
+    private void grant(Waiter waiter) {
+        if (waiter.async) {
+            asyncExecutor.execute(() -> waiter.complete(null));
+        } else {
+            // A blocked thread just needs unparking, no user code runs here.
+            waiter.complete(null);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package LLD.RateLimiter;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Shows BlockingRateLimiter pacing a crowd of waiters without busy-waiting:
+//   - WAITERS threads all call acquire() at once on a bucket of one token, refilled at
+//     RATE/s. Grants should come out evenly spaced at 1/RATE, and the process should burn
+//     almost no CPU while they wait.
+//   - the same number of acquireAsync() futures must complete in the order they were asked.
+//   - an acquire with a short timeout gives up and leaves the permits for others.
+//
+// Run: java LLD.RateLimiter.BlockingRateLimiterDemo
+public class BlockingRateLimiterDemo {
+
+    private static final int RATE = 500;
+    private static final int WAITERS = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        blockingWaiters();
+        asyncWaitersInOrder();
+        timeout();
+    }
+
+    private static void blockingWaiters() throws InterruptedException {
+        try (BlockingRateLimiter limiter = new BlockingRateLimiter(new ConcurrentTokenBucketRateLimiter(1, RATE))) {
+            long[] grantedAt = new long[WAITERS];
+            AtomicInteger order = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(WAITERS);
+
+            long cpuBefore = processCpuNanos();
+            long start = System.nanoTime();
+            for (int i = 0; i < WAITERS; i++) {
+                Thread waiter = new Thread(() -> {
+                    try {
+                        if (limiter.acquire(1, 30, TimeUnit.SECONDS)) {
+                            grantedAt[order.getAndIncrement()] = System.nanoTime();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    done.countDown();
+                }, "waiter-" + i);
+                waiter.setDaemon(true);
+                waiter.start();
+            }
+            done.await();
+            long wall = System.nanoTime() - start;
+            long cpu = processCpuNanos() - cpuBefore;
+
+            // Spacing between consecutive grants, ideally exactly 1/RATE.
+            long ideal = 1_000_000_000L / RATE;
+            long worst = 0;
+            double sumAbs = 0;
+            for (int i = 1; i < WAITERS; i++) {
+                long error = Math.abs((grantedAt[i] - grantedAt[i - 1]) - ideal);
+                worst = Math.max(worst, error);
+                sumAbs += error;
+            }
+            System.out.printf("blocking: %d waiters in %.2fs (ideal %.2fs), gap %.0fus +- %.1fus avg, worst %.1fus, cpu %.0f%% of one core%n",
+                    WAITERS, wall / 1e9, (double) (WAITERS - 1) / RATE, ideal / 1e3,
+                    sumAbs / (WAITERS - 1) / 1e3, worst / 1e3, 100.0 * cpu / wall);
+        }
+    }
+
+    private static void asyncWaitersInOrder() {
+        try (BlockingRateLimiter limiter = new BlockingRateLimiter(new ConcurrentTokenBucketRateLimiter(1, RATE))) {
+            int[] completedAs = new int[WAITERS];
+            AtomicInteger sequence = new AtomicInteger();
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[WAITERS];
+
+            for (int i = 0; i < WAITERS; i++) {
+                final int asked = i;
+                futures[i] = limiter.acquireAsync(1).thenRun(() -> completedAs[asked] = sequence.getAndIncrement());
+            }
+            CompletableFuture.allOf(futures).join();
+
+            int outOfOrder = 0;
+            for (int i = 0; i < WAITERS; i++) {
+                if (completedAs[i] != i) {
+                    outOfOrder++;
+                }
+            }
+            System.out.printf("async: %d futures completed, %d out of FIFO order%n", WAITERS, outOfOrder);
+        }
+    }
+
+    private static void timeout() throws InterruptedException {
+        try (BlockingRateLimiter limiter = new BlockingRateLimiter(new ConcurrentTokenBucketRateLimiter(10, 10))) {
+            limiter.tryAcquire(10);
+
+            // 10 permits take a second to refill, so a 50ms timeout must give up...
+            long start = System.nanoTime();
+            boolean got = limiter.acquire(10, 50, TimeUnit.MILLISECONDS);
+            System.out.printf("timeout: acquire(10, 50ms) = %s after %.0fms%n", got, (System.nanoTime() - start) / 1e6);
+
+            // ...and must not leave anything queued that would hold up the next caller.
+            start = System.nanoTime();
+            got = limiter.acquire(1, 1, TimeUnit.SECONDS);
+            System.out.printf("timeout: next acquire(1) = %s after %.0fms, queue length %d%n",
+                    got, (System.nanoTime() - start) / 1e6, limiter.getQueueLength());
+        }
+    }
+
+    private static long processCpuNanos() {
+        java.lang.management.OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,120 @@
+package LLD.RateLimiter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+// Hammers a single bucket from 1..64 threads and checks two things per run:
+//   1. throughput of allowRequest() decisions (synchronized bucket vs lock-free CAS vs
+//      sharded leases)
+//   2. no tokens are lost or invented: admitted must be <= maxToken + rate * elapsed,
+//      and since every thread is always asking, it should sit just under that bound.
+//      "unspent" is whatever refilled while no worker was scheduled (thread wake-up,
+//      the tail after the stop flag); it should stay small and flat as threads grow.
+//
+// Run: java LLD.RateLimiter.ConcurrentTokenBucketBenchmark
+public class ConcurrentTokenBucketBenchmark {
+
+    private static final int MAX_TOKEN = 1_000;
+    private static final int RATE_PER_SECOND = 1_000_000;
+    private static final long RUN_MILLIS = 500;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] threadCounts = {1, 2, 4, 8, 16, 32, 64};
+
+        System.out.printf("%-8s %-12s %14s %12s %12s %10s%n",
+                "threads", "limiter", "decisions/s", "admitted", "expected", "unspent");
+
+        for (int threads : threadCounts) {
+            run(threads, "synchronized");
+            run(threads, "cas");
+            run(threads, "sharded");
+        }
+    }
+
+    private static void run(int threads, String name) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        BooleanSupplier[] decision = new BooleanSupplier[1];
+        long[] admitted = new long[threads];
+        long[] calls = new long[threads];
+
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            Thread worker = new Thread(() -> {
+                long localAdmitted = 0, localCalls = 0;
+                ready.countDown();
+                awaitQuietly(go);
+                BooleanSupplier d = decision[0];
+                while (running.get()) {
+                    if (d.getAsBoolean()) {
+                        localAdmitted++;
+                    }
+                    localCalls++;
+                }
+                admitted[id] = localAdmitted;
+                calls[id] = localCalls;
+                done.countDown();
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        ready.await();
+
+        // Build the bucket only once every thread is parked on `go`, so thread start-up
+        // time doesn't show up as refill nobody was around to spend.
+        long start = System.nanoTime();
+        decision[0] = newDecision(name);
+        go.countDown();
+
+        Thread.sleep(RUN_MILLIS);
+        running.set(false);
+        long end = System.nanoTime();
+        done.await();
+
+        long totalAdmitted = 0, totalCalls = 0;
+        for (int t = 0; t < threads; t++) {
+            totalAdmitted += admitted[t];
+            totalCalls += calls[t];
+        }
+
+        // Upper bound for anything admitted between construction and the stop flag. A few
+        // calls may still finish after `end`, so allow one extra token per thread.
+        double elapsedSeconds = (end - start) / 1_000_000_000.0;
+        long expected = MAX_TOKEN + (long) (elapsedSeconds * RATE_PER_SECOND);
+        long unspent = expected - totalAdmitted;
+
+        System.out.printf("%-8d %-12s %14.0f %12d %12d %10d%s%n",
+                threads, name, totalCalls / elapsedSeconds, totalAdmitted, expected, unspent,
+                totalAdmitted > expected + threads ? "  <-- OVER-ADMITTED" : "");
+    }
+
+    private static BooleanSupplier newDecision(String name) {
+        switch (name) {
+            case "synchronized":
+                TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(MAX_TOKEN, RATE_PER_SECOND);
+                return () -> {
+                    synchronized (limiter) {
+                        return limiter.allowRequest();
+                    }
+                };
+            case "cas":
+                return new ConcurrentTokenBucketRateLimiter(MAX_TOKEN, RATE_PER_SECOND)::allowRequest;
+            case "sharded":
+                return new ShardedTokenBucketRateLimiter(MAX_TOKEN, RATE_PER_SECOND)::allowRequest;
+            default:
+                throw new IllegalArgumentException("Unknown limiter: " + name);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
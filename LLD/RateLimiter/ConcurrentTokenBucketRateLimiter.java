@@ -0,0 +1,165 @@
+package LLD.RateLimiter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Thread-safe version of TokenBucketRateLimiter that never takes a lock.
+//
+// The trick is to not store currToken and lastRefillTimestamp separately (two threads
+// can interleave between updating one and the other). Instead the whole bucket is one
+// long: the instant at which the bucket would have held zero tokens ("emptyAt").
+//
+//   tokens(now) = min(maxToken, (now - emptyAt) / nanosPerToken)
+//
+// Refill is implicit in the passage of time, and taking n tokens is just moving emptyAt
+// forward by n * nanosPerToken. So every request is one read + one CAS on a single word.
+public class ConcurrentTokenBucketRateLimiter implements RateLimiter {
+
+    static final long DENIED = Long.MIN_VALUE;
+    // A token costs a whole number of nanoseconds, so the rate is really 1e9 / (1e9 / rate):
+    // at 600M/s a token would cost 1 ns and 1e9/s get through. Up to 1M/s a token costs at
+    // least 1000 ns and the rounding stays under 0.1%. Above that, TokenBucketRateLimiter's
+    // highPrecision() mode keeps exact credit (behind a lock of your own).
+    static final int MAX_RATE_PER_SECOND = 1_000_000;
+
+    private final int maxToken;
+    private final long nanosPerToken;
+    private final long fullBucketNanos;
+    private final LongSupplier clock;
+
+    private final AtomicLong emptyAt;
+
+    public ConcurrentTokenBucketRateLimiter(int maxToken, int refillRatePerSecond) {
+        this(maxToken, refillRatePerSecond, System::nanoTime);
+    }
+
+    public ConcurrentTokenBucketRateLimiter(int maxToken, int refillRatePerSecond, LongSupplier clock) {
+        if (maxToken <= 0) {
+            throw new IllegalArgumentException("maxToken must be positive: " + maxToken);
+        }
+        if (refillRatePerSecond <= 0 || refillRatePerSecond > MAX_RATE_PER_SECOND) {
+            throw new IllegalArgumentException("refillRatePerSecond must be in (0, " + MAX_RATE_PER_SECOND + "]: "
+                    + refillRatePerSecond);
+        }
+        this.maxToken = maxToken;
+        this.nanosPerToken = 1_000_000_000L / refillRatePerSecond;
+        this.fullBucketNanos = maxToken * nanosPerToken;
+        this.clock = clock;
+
+        // Start with a full bucket, same as TokenBucketRateLimiter.
+        this.emptyAt = new AtomicLong(clock.getAsLong() - fullBucketNanos);
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        long cost = costOf(permits);
+
+        while (true) {
+            long current = emptyAt.get();
+            long next = take(current, clock.getAsLong(), cost, fullBucketNanos);
+            if (next == DENIED) {
+                // No write at all on the reject path, so a drained bucket under heavy
+                // load is only read by the losers, not fought over.
+                return false;
+            }
+            if (emptyAt.compareAndSet(current, next)) {
+                return true;
+            }
+            // Someone else took tokens between our read and CAS; retry with fresh state.
+        }
+    }
+
+    // Takes as many tokens as are available, up to `permits`, and returns how many it got.
+    // Used to hand out token leases in batches (see ShardedTokenBucketRateLimiter).
+    public int tryAcquireUpTo(int permits) {
+        return tryAcquireUpTo(permits, clock.getAsLong());
+    }
+
+    int tryAcquireUpTo(int permits, long now) {
+        costOf(permits);
+
+        while (true) {
+            long current = emptyAt.get();
+            long floor = now - fullBucketNanos;
+            long base = current - floor > 0 ? current : floor;
+            long available = (now - base) / nanosPerToken;
+            if (available <= 0) {
+                return 0;
+            }
+            int granted = (int) Math.min(permits, available);
+            if (emptyAt.compareAndSet(current, base + granted * nanosPerToken)) {
+                return granted;
+            }
+        }
+    }
+
+    // Gives back tokens that were acquired but not used. Anything that would push the
+    // bucket past maxToken is dropped, same as refill would have.
+    public void release(int permits) {
+        if (permits <= 0) {
+            return;
+        }
+        long refund = permits * nanosPerToken;
+
+        while (true) {
+            long current = emptyAt.get();
+            long floor = clock.getAsLong() - fullBucketNanos;
+            long next = current - refund;
+            if (next - floor < 0) {
+                next = floor;
+            }
+            if (next == current || emptyAt.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int availablePermits() {
+        long now = clock.getAsLong();
+        long elapsed = now - emptyAt.get();
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return (int) Math.min(maxToken, elapsed / nanosPerToken);
+    }
+
+    @Override
+    public long nanosUntilAvailable(int permits) {
+        long cost = costOf(permits);
+        long now = clock.getAsLong();
+        long floor = now - fullBucketNanos;
+        long current = emptyAt.get();
+        long base = current - floor > 0 ? current : floor;
+        return Math.max(0, base + cost - now);
+    }
+
+    public int getMaxToken() {
+        return maxToken;
+    }
+
+    long getNanosPerToken() {
+        return nanosPerToken;
+    }
+
+    long costOf(int permits) {
+        if (permits <= 0 || permits > maxToken) {
+            throw new IllegalArgumentException("permits must be in [1, " + maxToken + "]: " + permits);
+        }
+        return permits * nanosPerToken;
+    }
+
+    // Pure function of the bucket state, shared by everything that stores a bucket as a
+    // single emptyAt word. Returns the new emptyAt after spending `cost` nanos worth of
+    // tokens at `now`, or DENIED if there aren't enough tokens.
+    static long take(long emptyAt, long now, long cost, long fullBucketNanos) {
+        // A bucket that has been idle longer than it takes to fill is simply full;
+        // don't let it bank more than maxToken worth of time.
+        // Compare with subtraction, nanoTime values are only meaningful as differences.
+        long floor = now - fullBucketNanos;
+        long base = emptyAt - floor > 0 ? emptyAt : floor;
+        long next = base + cost;
+
+        return next - now <= 0 ? next : DENIED;
+    }
+}
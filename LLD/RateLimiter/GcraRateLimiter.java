@@ -0,0 +1,90 @@
+package LLD.RateLimiter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Generic Cell Rate Algorithm. The whole state is one timestamp, the "theoretical arrival
+// time" (TAT): when the next request would be due if requests arrived exactly at the
+// configured rate. A request is allowed as long as it isn't more than `burst` emission
+// intervals ahead of schedule.
+//
+//   emissionInterval = 1s / ratePerSecond
+//   allow n  <=>  max(tat, now) + n * emissionInterval - now <= burst * emissionInterval
+//
+// It admits exactly what a token bucket with maxToken = burst would, but there's nothing
+// to refill and only 8 bytes of state, which is why it's the usual choice for per-key
+// limits in Redis and friends.
+public class GcraRateLimiter implements RateLimiter {
+
+    private final int burst;
+    private final long emissionInterval;
+    private final long tolerance;
+    private final LongSupplier clock;
+
+    private final AtomicLong tat;
+
+    public GcraRateLimiter(int ratePerSecond, int burst) {
+        this(ratePerSecond, burst, System::nanoTime);
+    }
+
+    public GcraRateLimiter(int ratePerSecond, int burst, LongSupplier clock) {
+        if (burst <= 0) {
+            throw new IllegalArgumentException("burst must be positive: " + burst);
+        }
+        // The emission interval is whole nanoseconds, so it only tracks the rate to within 0.1%
+        // up to ConcurrentTokenBucketRateLimiter's cap (600M/s would round to 1 ns, i.e. 1e9/s).
+        if (ratePerSecond <= 0 || ratePerSecond > ConcurrentTokenBucketRateLimiter.MAX_RATE_PER_SECOND) {
+            throw new IllegalArgumentException("ratePerSecond must be in (0, "
+                    + ConcurrentTokenBucketRateLimiter.MAX_RATE_PER_SECOND + "]: " + ratePerSecond);
+        }
+        this.burst = burst;
+        this.emissionInterval = 1_000_000_000L / ratePerSecond;
+        this.tolerance = burst * emissionInterval;
+        this.clock = clock;
+
+        // TAT in the past means "no debt", i.e. the full burst is available.
+        this.tat = new AtomicLong(clock.getAsLong());
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0 || permits > burst) {
+            throw new IllegalArgumentException("permits must be in [1, " + burst + "]: " + permits);
+        }
+        long increment = permits * emissionInterval;
+
+        while (true) {
+            long now = clock.getAsLong();
+            long current = tat.get();
+            long base = current - now > 0 ? current : now;
+            long next = base + increment;
+            if (next - now > tolerance) {
+                return false;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public int availablePermits() {
+        long now = clock.getAsLong();
+        long ahead = tat.get() - now;
+        if (ahead < 0) {
+            ahead = 0;
+        }
+        return (int) ((tolerance - ahead) / emissionInterval);
+    }
+
+    @Override
+    public long nanosUntilAvailable(int permits) {
+        if (permits <= 0 || permits > burst) {
+            throw new IllegalArgumentException("permits must be in [1, " + burst + "]: " + permits);
+        }
+        long now = clock.getAsLong();
+        long current = tat.get();
+        long base = current - now > 0 ? current : now;
+        return Math.max(0, base + permits * emissionInterval - now - tolerance);
+    }
+}
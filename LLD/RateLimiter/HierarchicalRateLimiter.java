@@ -0,0 +1,171 @@
+package LLD.RateLimiter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Limits at several levels at once: global -> tenant -> endpoint. A request is admitted
+// only if every bucket on its path has the permits, and then all of them are debited.
+//
+// Chaining independent limiters (global.tryAcquire && tenant.tryAcquire && ...) gets this
+// wrong: when the endpoint says no, the global and tenant tokens are already gone and have
+// to be rolled back, and meanwhile other requests were judged against the wrong numbers.
+// Here the whole path is checked first and only then debited, under one lock, so a
+// rejected request leaves every level exactly as it was.
+//
+// One lock for the whole tree costs nothing extra: every path goes through the global
+// bucket, so requests were always going to serialize there. The critical section is a few
+// arithmetic operations per level.
+//
+// Paths are resolved once and cached (path(tenant, endpoint)), so a request is a single
+// pass over a small array of nodes, not a walk down the tree.
+public class HierarchicalRateLimiter {
+
+    public static final class Limit {
+        final int maxToken;
+        final int refillRatePerSecond;
+
+        public Limit(int maxToken, int refillRatePerSecond) {
+            if (maxToken <= 0) {
+                throw new IllegalArgumentException("maxToken must be positive: " + maxToken);
+            }
+            // Nodes cost whole nanoseconds per token, as in ConcurrentTokenBucketRateLimiter, so
+            // a level takes the same cap or its rounding would let far more through.
+            if (refillRatePerSecond <= 0 || refillRatePerSecond > ConcurrentTokenBucketRateLimiter.MAX_RATE_PER_SECOND) {
+                throw new IllegalArgumentException("refillRatePerSecond must be in (0, "
+                        + ConcurrentTokenBucketRateLimiter.MAX_RATE_PER_SECOND + "]: " + refillRatePerSecond);
+            }
+            this.maxToken = maxToken;
+            this.refillRatePerSecond = refillRatePerSecond;
+        }
+    }
+
+    // One bucket in the tree, stored as the same single "emptyAt" word as
+    // ConcurrentTokenBucketRateLimiter. Only touched while holding the limiter's lock.
+    static final class Node {
+        final String name;
+        final int maxToken;
+        final long nanosPerToken;
+        final long fullBucketNanos;
+
+        long emptyAt;
+        // Scratch space for the check phase, so commit doesn't have to recompute.
+        long pending;
+
+        Node(String name, Limit limit, long now) {
+            this.name = name;
+            this.maxToken = limit.maxToken;
+            this.nanosPerToken = 1_000_000_000L / limit.refillRatePerSecond;
+            this.fullBucketNanos = maxToken * nanosPerToken;
+            this.emptyAt = now - fullBucketNanos;
+        }
+
+        int availablePermits(long now) {
+            long elapsed = now - emptyAt;
+            return elapsed <= 0 ? 0 : (int) Math.min(maxToken, elapsed / nanosPerToken);
+        }
+    }
+
+    // A resolved global -> tenant -> endpoint chain. Hold on to it (or let path() cache it)
+    // to skip the lookups on every request.
+    public static final class Path {
+        final Node[] nodes;
+
+        Path(Node... nodes) {
+            this.nodes = nodes;
+        }
+    }
+
+    private final Node global;
+    private final Limit tenantDefault;
+    private final Limit endpointDefault;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<String, Node> tenants = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Path>> paths = new ConcurrentHashMap<>();
+
+    public HierarchicalRateLimiter(Limit global, Limit tenantDefault, Limit endpointDefault) {
+        this(global, tenantDefault, endpointDefault, System::nanoTime);
+    }
+
+    public HierarchicalRateLimiter(Limit global, Limit tenantDefault, Limit endpointDefault, LongSupplier clock) {
+        this.clock = clock;
+        this.global = new Node("global", global, clock.getAsLong());
+        this.tenantDefault = tenantDefault;
+        this.endpointDefault = endpointDefault;
+    }
+
+    // Gives one tenant a different limit than the default. Must be called before the
+    // tenant's first request.
+    public void setTenantLimit(String tenant, Limit limit) {
+        if (tenants.putIfAbsent(tenant, new Node(tenant, limit, clock.getAsLong())) != null) {
+            throw new IllegalStateException("Tenant already in use: " + tenant);
+        }
+    }
+
+    // Same for one endpoint of one tenant.
+    public void setEndpointLimit(String tenant, String endpoint, Limit limit) {
+        Node tenantNode = tenants.computeIfAbsent(tenant, t -> new Node(t, tenantDefault, clock.getAsLong()));
+        Path path = new Path(global, tenantNode, new Node(tenant + "/" + endpoint, limit, clock.getAsLong()));
+        if (paths.computeIfAbsent(tenant, t -> new ConcurrentHashMap<>()).putIfAbsent(endpoint, path) != null) {
+            throw new IllegalStateException("Endpoint already in use: " + tenant + "/" + endpoint);
+        }
+    }
+
+    public Path path(String tenant, String endpoint) {
+        // Two plain gets for a warm path; only the first request for a path allocates.
+        ConcurrentHashMap<String, Path> endpoints = paths.get(tenant);
+        if (endpoints != null) {
+            Path path = endpoints.get(endpoint);
+            if (path != null) {
+                return path;
+            }
+        }
+
+        Node tenantNode = tenants.computeIfAbsent(tenant, t -> new Node(t, tenantDefault, clock.getAsLong()));
+        return paths.computeIfAbsent(tenant, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(endpoint, e -> new Path(global, tenantNode,
+                        new Node(tenant + "/" + e, endpointDefault, clock.getAsLong())));
+    }
+
+    public boolean tryAcquire(String tenant, String endpoint, int permits) {
+        return tryAcquire(path(tenant, endpoint), permits);
+    }
+
+    public boolean tryAcquire(Path path, int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be positive: " + permits);
+        }
+        Node[] nodes = path.nodes;
+
+        synchronized (this) {
+            long now = clock.getAsLong();
+
+            // Check every level before touching any of them.
+            for (Node node : nodes) {
+                if (permits > node.maxToken) {
+                    throw new IllegalArgumentException("permits exceed " + node.name + " maxToken: " + permits);
+                }
+                long next = ConcurrentTokenBucketRateLimiter.take(node.emptyAt, now, permits * node.nanosPerToken, node.fullBucketNanos);
+                if (next == ConcurrentTokenBucketRateLimiter.DENIED) {
+                    return false;
+                }
+                node.pending = next;
+            }
+
+            for (Node node : nodes) {
+                node.emptyAt = node.pending;
+            }
+            return true;
+        }
+    }
+
+    // Tokens left at each level of the path, global first.
+    public synchronized int[] availablePermits(Path path) {
+        long now = clock.getAsLong();
+        int[] available = new int[path.nodes.length];
+        for (int i = 0; i < available.length; i++) {
+            available[i] = path.nodes[i].availablePermits(now);
+        }
+        return available;
+    }
+}
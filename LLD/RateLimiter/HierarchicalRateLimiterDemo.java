@@ -0,0 +1,70 @@
+package LLD.RateLimiter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Compares HierarchicalRateLimiter with naively chaining three independent buckets.
+//
+// Tenant "acme" hammers its /search endpoint, whose own limit is the tightest. With the
+// chain, every request the endpoint rejects has already spent a global and a tenant token,
+// so acme's /orders traffic and tenant "globex" get starved by requests that were never
+// served. With the hierarchical limiter a rejected request leaves all levels untouched.
+//
+// Run: java LLD.RateLimiter.HierarchicalRateLimiterDemo
+public class HierarchicalRateLimiterDemo {
+
+    public static void main(String[] args) {
+        AtomicLong now = new AtomicLong(0);
+
+        HierarchicalRateLimiter.Limit global = new HierarchicalRateLimiter.Limit(100, 100);
+        HierarchicalRateLimiter.Limit tenant = new HierarchicalRateLimiter.Limit(60, 60);
+        HierarchicalRateLimiter.Limit endpoint = new HierarchicalRateLimiter.Limit(20, 20);
+
+        HierarchicalRateLimiter hierarchical = new HierarchicalRateLimiter(global, tenant, endpoint, now::get);
+        HierarchicalRateLimiter.Path acmeSearch = hierarchical.path("acme", "/search");
+        HierarchicalRateLimiter.Path acmeOrders = hierarchical.path("acme", "/orders");
+        HierarchicalRateLimiter.Path globexSearch = hierarchical.path("globex", "/search");
+
+        ConcurrentTokenBucketRateLimiter chainGlobal = new ConcurrentTokenBucketRateLimiter(100, 100, now::get);
+        ConcurrentTokenBucketRateLimiter chainAcme = new ConcurrentTokenBucketRateLimiter(60, 60, now::get);
+        ConcurrentTokenBucketRateLimiter chainGlobex = new ConcurrentTokenBucketRateLimiter(60, 60, now::get);
+        ConcurrentTokenBucketRateLimiter chainAcmeSearch = new ConcurrentTokenBucketRateLimiter(20, 20, now::get);
+        ConcurrentTokenBucketRateLimiter chainAcmeOrders = new ConcurrentTokenBucketRateLimiter(20, 20, now::get);
+        ConcurrentTokenBucketRateLimiter chainGlobexSearch = new ConcurrentTokenBucketRateLimiter(20, 20, now::get);
+
+        // One rejected request, before and after.
+        for (int i = 0; i < 20; i++) {
+            hierarchical.tryAcquire(acmeSearch, 1);
+        }
+        int[] before = hierarchical.availablePermits(acmeSearch);
+        boolean admitted = hierarchical.tryAcquire(acmeSearch, 1);
+        int[] after = hierarchical.availablePermits(acmeSearch);
+        System.out.println("rejected=" + !admitted + " levels before=" + Arrays.toString(before)
+                + " after=" + Arrays.toString(after) + " (global, tenant, endpoint)");
+
+        // 10 simulated seconds, 1ms steps: acme/search at 200/s, acme/orders and
+        // globex/search at 15/s each (well under their own endpoint limits).
+        long[] hierarchicalServed = new long[3];
+        long[] chainServed = new long[3];
+        for (int ms = 0; ms < 10_000; ms++) {
+            now.addAndGet(1_000_000);
+            if (ms % 5 == 0) {
+                if (hierarchical.tryAcquire(acmeSearch, 1)) hierarchicalServed[0]++;
+                if (chainGlobal.allowRequest() && chainAcme.allowRequest() && chainAcmeSearch.allowRequest()) chainServed[0]++;
+            }
+            if (ms % 66 == 0) {
+                if (hierarchical.tryAcquire(acmeOrders, 1)) hierarchicalServed[1]++;
+                if (chainGlobal.allowRequest() && chainAcme.allowRequest() && chainAcmeOrders.allowRequest()) chainServed[1]++;
+            }
+            if (ms % 66 == 33) {
+                if (hierarchical.tryAcquire(globexSearch, 1)) hierarchicalServed[2]++;
+                if (chainGlobal.allowRequest() && chainGlobex.allowRequest() && chainGlobexSearch.allowRequest()) chainServed[2]++;
+            }
+        }
+
+        System.out.printf("%-14s %12s %12s %14s%n", "", "acme/search", "acme/orders", "globex/search");
+        System.out.printf("%-14s %12d %12d %14d%n", "asked", 2_000, 152, 152);
+        System.out.printf("%-14s %12d %12d %14d%n", "hierarchical", hierarchicalServed[0], hierarchicalServed[1], hierarchicalServed[2]);
+        System.out.printf("%-14s %12d %12d %14d%n", "chained", chainServed[0], chainServed[1], chainServed[2]);
+    }
+}
@@ -0,0 +1,44 @@
+package LLD.RateLimiter;
+
+// InstrumentedRateLimiter for KeyedRateLimiter: same counters and refill-lag histogram,
+// plus the rejected keys go into the top-N throttled table. There's no single token level
+// here, so the gauge reports how many keys are tracked instead.
+public class InstrumentedKeyedRateLimiter<K> {
+
+    private final KeyedRateLimiter<K> delegate;
+    private final RateLimiterMetrics metrics;
+
+    public InstrumentedKeyedRateLimiter(KeyedRateLimiter<K> delegate) {
+        this(delegate, 1024);
+    }
+
+    public InstrumentedKeyedRateLimiter(KeyedRateLimiter<K> delegate, int throttledKeySlots) {
+        this.delegate = delegate;
+        this.metrics = new RateLimiterMetrics(() -> -1, delegate::size, throttledKeySlots);
+    }
+
+    public boolean allowRequest(K key) {
+        return tryAcquire(key, 1);
+    }
+
+    public boolean tryAcquire(K key, int permits) {
+        if (delegate.tryAcquire(key, permits)) {
+            metrics.recordAdmitted();
+            return true;
+        }
+        metrics.recordRejected(key, delegate.nanosUntilAvailable(key, permits));
+        return false;
+    }
+
+    public int availablePermits(K key) {
+        return delegate.availablePermits(key);
+    }
+
+    public KeyedRateLimiter<K> getDelegate() {
+        return delegate;
+    }
+
+    public RateLimiterMetrics getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,47 @@
+package LLD.RateLimiter;
+
+// Decorator that feeds any RateLimiter's decisions into a RateLimiterMetrics. Admits cost
+// one LongAdder increment; rejects also ask the limiter for its refill lag, which is one
+// more clock read, only on the path that's already saying no.
+//
+// The delegate must be thread-safe (ConcurrentTokenBucketRateLimiter, GcraRateLimiter,
+// ...): the token level gauge calls its availablePermits() from whatever thread reads
+// the metrics, usually JMX, while request threads are using it. TokenBucketRateLimiter
+// refills inside availablePermits() without a lock, so wrapping it is a data race.
+//
+//   InstrumentedRateLimiter limiter = new InstrumentedRateLimiter(new ConcurrentTokenBucketRateLimiter(100, 10));
+//   limiter.getMetrics().register("checkout-api");
+public class InstrumentedRateLimiter implements RateLimiter {
+
+    private final RateLimiter delegate;
+    private final RateLimiterMetrics metrics;
+
+    public InstrumentedRateLimiter(RateLimiter delegate) {
+        this.delegate = delegate;
+        this.metrics = new RateLimiterMetrics(delegate::availablePermits);
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (delegate.tryAcquire(permits)) {
+            metrics.recordAdmitted();
+            return true;
+        }
+        metrics.recordRejected(delegate.nanosUntilAvailable(permits));
+        return false;
+    }
+
+    @Override
+    public int availablePermits() {
+        return delegate.availablePermits();
+    }
+
+    @Override
+    public long nanosUntilAvailable(int permits) {
+        return delegate.nanosUntilAvailable(permits);
+    }
+
+    public RateLimiterMetrics getMetrics() {
+        return metrics;
+    }
+}
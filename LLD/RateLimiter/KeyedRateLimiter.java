@@ -0,0 +1,165 @@
+package LLD.RateLimiter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// One token bucket per key (API key, client IP, ...), all sharing the same maxToken and
+// refill rate.
+//
+// Each key costs a single AtomicLong holding the same "emptyAt" word that
+// ConcurrentTokenBucketRateLimiter uses; the config lives here once instead of being
+// copied into every bucket. Rough footprint per key on a 64-bit JVM with compressed oops:
+//   AtomicLong                 24 bytes
+//   ConcurrentHashMap.Node     32 bytes
+//   table slot                 ~4-8 bytes (table is kept at <= 75% load)
+//   + the key object itself (not counted, the caller usually already has it)
+// KeyedRateLimiterMemoryReport measures it for real.
+//
+// Memory stays bounded by evicting buckets that are full. A full bucket is exactly what
+// a brand new bucket looks like, so dropping it and re-creating it lazily on the next
+// request can't change any decision. Only keys seen within the last
+// (maxToken / refillRatePerSecond) seconds + one sweep interval are kept in memory.
+public class KeyedRateLimiter<K> {
+
+    // Marks a bucket that the sweeper has removed. A request that raced with eviction and
+    // still holds the old bucket sees this and goes back to the map for a fresh one,
+    // instead of spending tokens on a bucket nobody will ever look at again.
+    private static final long RETIRED = Long.MAX_VALUE;
+
+    private final int maxToken;
+    private final long nanosPerToken;
+    private final long fullBucketNanos;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    // Built once so computeIfAbsent doesn't allocate a capturing lambda per call.
+    private final Function<K, AtomicLong> newBucket;
+
+    public KeyedRateLimiter(int maxToken, int refillRatePerSecond) {
+        this(maxToken, refillRatePerSecond, System::nanoTime);
+    }
+
+    public KeyedRateLimiter(int maxToken, int refillRatePerSecond, LongSupplier clock) {
+        if (maxToken <= 0) {
+            throw new IllegalArgumentException("maxToken must be positive: " + maxToken);
+        }
+        // Whole nanoseconds per token, so the same cap as ConcurrentTokenBucketRateLimiter keeps
+        // the rounding under 0.1% (at 600M/s a key would really get 1e9/s).
+        if (refillRatePerSecond <= 0 || refillRatePerSecond > ConcurrentTokenBucketRateLimiter.MAX_RATE_PER_SECOND) {
+            throw new IllegalArgumentException("refillRatePerSecond must be in (0, "
+                    + ConcurrentTokenBucketRateLimiter.MAX_RATE_PER_SECOND + "]: " + refillRatePerSecond);
+        }
+        this.maxToken = maxToken;
+        this.nanosPerToken = 1_000_000_000L / refillRatePerSecond;
+        this.fullBucketNanos = maxToken * nanosPerToken;
+        this.clock = clock;
+        this.newBucket = key -> new AtomicLong(this.clock.getAsLong() - fullBucketNanos);
+    }
+
+    public boolean allowRequest(K key) {
+        return tryAcquire(key, 1);
+    }
+
+    public boolean tryAcquire(K key, int permits) {
+        if (permits <= 0 || permits > maxToken) {
+            throw new IllegalArgumentException("permits must be in [1, " + maxToken + "]: " + permits);
+        }
+        long cost = permits * nanosPerToken;
+
+        while (true) {
+            // Plain get() first: for a warm key this is a lock-free read with no allocation.
+            // computeIfAbsent is only reached for new (or just evicted) keys.
+            AtomicLong bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = buckets.computeIfAbsent(key, newBucket);
+            }
+
+            long current = bucket.get();
+            if (current == RETIRED) {
+                // Help the sweeper finish so the next lookup creates a fresh bucket.
+                buckets.remove(key, bucket);
+                continue;
+            }
+
+            long next = ConcurrentTokenBucketRateLimiter.take(current, clock.getAsLong(), cost, fullBucketNanos);
+            if (next == ConcurrentTokenBucketRateLimiter.DENIED) {
+                return false;
+            }
+            if (bucket.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    public int availablePermits(K key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            return maxToken;
+        }
+        long current = bucket.get();
+        if (current == RETIRED) {
+            return maxToken;
+        }
+        long elapsed = clock.getAsLong() - current;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return (int) Math.min(maxToken, elapsed / nanosPerToken);
+    }
+
+    // Same as RateLimiter.nanosUntilAvailable, for one key.
+    public long nanosUntilAvailable(K key, int permits) {
+        if (permits <= 0 || permits > maxToken) {
+            throw new IllegalArgumentException("permits must be in [1, " + maxToken + "]: " + permits);
+        }
+        AtomicLong bucket = buckets.get(key);
+        long current = bucket == null ? RETIRED : bucket.get();
+        if (current == RETIRED) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        long floor = now - fullBucketNanos;
+        long base = current - floor > 0 ? current : floor;
+        return Math.max(0, base + permits * nanosPerToken - now);
+    }
+
+    // Removes every bucket that has refilled completely. Safe to run concurrently with
+    // tryAcquire: the bucket is retired with a CAS on its state, so it's either evicted
+    // while still full or a request got in first and it stays.
+    public int evictIdle() {
+        int evicted = 0;
+        for (Map.Entry<K, AtomicLong> entry : buckets.entrySet()) {
+            AtomicLong bucket = entry.getValue();
+            long current = bucket.get();
+            if (current == RETIRED) {
+                buckets.remove(entry.getKey(), bucket);
+                continue;
+            }
+            long now = clock.getAsLong();
+            if (now - current >= fullBucketNanos && bucket.compareAndSet(current, RETIRED)) {
+                buckets.remove(entry.getKey(), bucket);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public ScheduledFuture<?> scheduleEviction(ScheduledExecutorService scheduler, long period, TimeUnit unit) {
+        return scheduler.scheduleAtFixedRate(this::evictIdle, period, period, unit);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public int getMaxToken() {
+        return maxToken;
+    }
+}
@@ -0,0 +1,73 @@
+package LLD.RateLimiter;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reports what KeyedRateLimiter costs per key and checks that the warm path doesn't
+// allocate. Uses a hand-driven clock so eviction can be shown without waiting.
+//
+// Run with a heap big enough for the keys, e.g.
+//   java -Xmx4g LLD.RateLimiter.KeyedRateLimiterMemoryReport 5000000
+public class KeyedRateLimiterMemoryReport {
+
+    public static void main(String[] args) {
+        int keyCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int maxToken = 10, refillRatePerSecond = 5;
+
+        AtomicLong now = new AtomicLong(0);
+        KeyedRateLimiter<String> limiter = new KeyedRateLimiter<>(maxToken, refillRatePerSecond, now::get);
+
+        // Keys are built up front so their own size isn't charged to the limiter.
+        String[] keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "client-" + i;
+        }
+
+        long before = usedHeap();
+        for (String key : keys) {
+            limiter.allowRequest(key);
+        }
+        long after = usedHeap();
+        System.out.printf("keys=%d  buckets=%d  heap=%.1f MB  bytes/key=%.1f%n",
+                keyCount, limiter.size(), (after - before) / 1e6, (double) (after - before) / keyCount);
+
+        // Warm path: every key already has a bucket, so lookup + acquire should not allocate.
+        long allocatedBefore = threadAllocatedBytes();
+        int admitted = 0;
+        for (String key : keys) {
+            if (limiter.allowRequest(key)) {
+                admitted++;
+            }
+        }
+        long allocated = threadAllocatedBytes() - allocatedBefore;
+        System.out.printf("warm pass: admitted=%d  allocated=%d bytes (%.3f bytes/request)%n",
+                admitted, allocated, (double) allocated / keyCount);
+
+        // Each key has spent 2 tokens. One refill interval later they're still not full,
+        // so nothing may be evicted yet.
+        long nanosPerToken = 1_000_000_000L / refillRatePerSecond;
+        now.addAndGet(nanosPerToken);
+        System.out.printf("after %.1fs idle: evicted=%d  buckets=%d%n",
+                now.get() / 1e9, limiter.evictIdle(), limiter.size());
+
+        now.addAndGet(nanosPerToken);
+        System.out.printf("after %.1fs idle: evicted=%d  buckets=%d%n",
+                now.get() / 1e9, limiter.evictIdle(), limiter.size());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
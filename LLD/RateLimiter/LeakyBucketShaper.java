@@ -0,0 +1,204 @@
+package LLD.RateLimiter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Leaky bucket used as a traffic shaper: instead of dropping what's over the rate like
+// TokenBucketRateLimiter.allowRequest(), it queues tasks and lets them out one at a time at
+// a constant rate. Good for outbound calls to a partner API where a delayed call is fine
+// and a lost one isn't.
+//
+// Bursts are absorbed by a bounded queue and drained by one timer thread, exactly
+// 1/ratePerSecond apart. A task is rejected (its future fails with
+// RejectedExecutionException) when:
+//   - the queue is full, or
+//   - it would wait longer than maxDelay. This is checked on submit from the queue depth,
+//     so callers find out immediately, and again on release in case the estimate was off.
+//
+// Released tasks run on `executor` (by default right on the timer thread, which is fine
+// for tasks that just kick off an async call; pass a pool for anything that blocks).
+public class LeakyBucketShaper implements AutoCloseable {
+
+    private static final class Task {
+        final Runnable runnable;
+        final long enqueuedAt;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Task(Runnable runnable, long enqueuedAt) {
+            this.runnable = runnable;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final long intervalNanos;
+    private final long maxDelayNanos;
+    private final Executor executor;
+    private final ArrayBlockingQueue<Task> queue;
+    private final Thread timer;
+    private volatile boolean closed;
+
+    // When the timer thread may release the next task. Only the timer thread writes it.
+    private volatile long nextRelease;
+
+    private final LongAdder released = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+    private final LongAdder rejectedLate = new LongAdder();
+    private final LongAdder totalDelayNanos = new LongAdder();
+    private final AtomicLong maxDelayNanosSeen = new AtomicLong();
+
+    public LeakyBucketShaper(int ratePerSecond, int queueCapacity, long maxDelay, TimeUnit unit) {
+        this(ratePerSecond, queueCapacity, maxDelay, unit, Runnable::run);
+    }
+
+    public LeakyBucketShaper(int ratePerSecond, int queueCapacity, long maxDelay, TimeUnit unit, Executor executor) {
+        // Releases are intervalNanos apart in whole nanoseconds; past the cap of
+        // ConcurrentTokenBucketRateLimiter that rounds down enough to drain faster than asked.
+        if (ratePerSecond <= 0 || ratePerSecond > ConcurrentTokenBucketRateLimiter.MAX_RATE_PER_SECOND) {
+            throw new IllegalArgumentException("ratePerSecond must be in (0, "
+                    + ConcurrentTokenBucketRateLimiter.MAX_RATE_PER_SECOND + "]: " + ratePerSecond);
+        }
+        this.intervalNanos = 1_000_000_000L / ratePerSecond;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.nextRelease = System.nanoTime();
+
+        this.timer = new Thread(this::drain, "leaky-bucket-shaper");
+        this.timer.setDaemon(true);
+        this.timer.start();
+    }
+
+    // Completes when the task has run, or fails with RejectedExecutionException if it was
+    // shed. The task's own exceptions complete the future exceptionally too.
+    public CompletableFuture<Void> submit(Runnable runnable) {
+        long now = System.nanoTime();
+        Task task = new Task(runnable, now);
+
+        if (closed) {
+            task.done.completeExceptionally(new RejectedExecutionException("Shaper is closed"));
+            return task.done;
+        }
+        if (expectedDelay(now) > maxDelayNanos) {
+            rejectedLate.increment();
+            task.done.completeExceptionally(new RejectedExecutionException("Would wait longer than maxDelay"));
+            return task.done;
+        }
+        if (!queue.offer(task)) {
+            rejectedFull.increment();
+            task.done.completeExceptionally(new RejectedExecutionException("Shaper queue is full"));
+            return task.done;
+        }
+        // close() may have come in since the check above, after the timer's final drain;
+        // then nobody else would ever complete this task. If the drain does see it,
+        // remove() fails and the drain rejects it instead.
+        if (closed && queue.remove(task)) {
+            task.done.completeExceptionally(new RejectedExecutionException("Shaper is closed"));
+            return task.done;
+        }
+        LockSupport.unpark(timer);
+        return task.done;
+    }
+
+    // How long a task submitted now would sit in the queue.
+    public long expectedDelay(long now) {
+        long untilNext = Math.max(0, nextRelease - now);
+        return untilNext + queue.size() * intervalNanos;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getReleased() {
+        return released.sum();
+    }
+
+    public long getRejectedFull() {
+        return rejectedFull.sum();
+    }
+
+    public long getRejectedLate() {
+        return rejectedLate.sum();
+    }
+
+    // Average and worst time released tasks spent queued, i.e. the shaping delay.
+    public double getAverageDelayMillis() {
+        long count = released.sum();
+        return count == 0 ? 0 : totalDelayNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxDelayMillis() {
+        return maxDelayNanosSeen.get() / 1e6;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(timer);
+    }
+
+    private void drain() {
+        while (!closed) {
+            Task task = queue.peek();
+            if (task == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            long now = System.nanoTime();
+            long wait = nextRelease - now;
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            queue.poll();
+
+            long delay = now - task.enqueuedAt;
+            if (delay > maxDelayNanos) {
+                rejectedLate.increment();
+                task.done.completeExceptionally(new RejectedExecutionException("Waited longer than maxDelay"));
+                continue;
+            }
+
+            // Stay on the slot grid while busy, so park jitter doesn't eat into the rate. After
+            // an idle spell restart the grid from now: an idle shaper doesn't bank slots to
+            // release a burst later. That's the difference from a token bucket.
+            long slot = now - nextRelease > intervalNanos ? now : nextRelease;
+            nextRelease = slot + intervalNanos;
+
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.runnable.run();
+                        task.done.complete(null);
+                    } catch (RuntimeException e) {
+                        task.done.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // A shut down or saturated pool fails this task, not the timer thread and
+                // everything queued behind it.
+                task.done.completeExceptionally(e);
+                continue;
+            }
+
+            released.increment();
+            totalDelayNanos.add(delay);
+            long seen = maxDelayNanosSeen.get();
+            while (delay > seen && !maxDelayNanosSeen.compareAndSet(seen, delay)) {
+                seen = maxDelayNanosSeen.get();
+            }
+        }
+
+        Task task;
+        while ((task = queue.poll()) != null) {
+            task.done.completeExceptionally(new RejectedExecutionException("Shaper is closed"));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package LLD.RateLimiter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Shows LeakyBucketShaper turning bursts into a steady stream:
+//   - BURSTS bursts of BURST_SIZE tasks land at once, PAUSE_MS apart. At RATE/s the shaper
+//     can release RATE * PAUSE_MS / 1000 tasks between bursts, so part of each burst waits
+//     and the tail that would wait longer than MAX_DELAY_MS is rejected up front.
+//   - releases should come out evenly spaced at 1/RATE, bursts or not.
+//   - queue depth is sampled while it runs, and the shaping delay is reported at the end;
+//     those are the numbers to size queueCapacity and maxDelay from.
+//
+// Run: java LLD.RateLimiter.LeakyBucketShaperDemo
+public class LeakyBucketShaperDemo {
+
+    private static final int RATE = 200;
+    private static final int QUEUE_CAPACITY = 100;
+    private static final long MAX_DELAY_MS = 250;
+    private static final int BURSTS = 5;
+    private static final int BURST_SIZE = 80;
+    private static final long PAUSE_MS = 300;
+
+    public static void main(String[] args) throws Exception {
+        try (LeakyBucketShaper shaper = new LeakyBucketShaper(RATE, QUEUE_CAPACITY, MAX_DELAY_MS, TimeUnit.MILLISECONDS)) {
+            long[] releasedAt = new long[BURSTS * BURST_SIZE];
+            int[] count = new int[1];
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+            System.out.printf("%-6s %10s %10s%n", "burst", "depth", "est. ms");
+            for (int b = 0; b < BURSTS; b++) {
+                for (int i = 0; i < BURST_SIZE; i++) {
+                    // Only the timer thread runs these, so the plain array is safe.
+                    futures.add(shaper.submit(() -> releasedAt[count[0]++] = System.nanoTime()));
+                }
+                System.out.printf("%-6d %10d %10.1f%n", b, shaper.getQueueDepth(),
+                        shaper.expectedDelay(System.nanoTime()) / 1e6);
+                Thread.sleep(PAUSE_MS);
+            }
+
+            int rejected = 0;
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.join();
+                } catch (RuntimeException e) {
+                    rejected++;
+                }
+            }
+
+            long ideal = 1_000_000_000L / RATE;
+            long worst = 0;
+            double sumAbs = 0;
+            int gaps = 0;
+            for (int i = 1; i < count[0]; i++) {
+                long gap = releasedAt[i] - releasedAt[i - 1];
+                // Gaps across an idle spell aren't shaping error.
+                if (gap > 2 * ideal) {
+                    continue;
+                }
+                worst = Math.max(worst, Math.abs(gap - ideal));
+                sumAbs += Math.abs(gap - ideal);
+                gaps++;
+            }
+
+            System.out.printf("submitted %d, released %d, rejected %d (queue full %d, too late %d)%n",
+                    futures.size(), shaper.getReleased(), rejected, shaper.getRejectedFull(), shaper.getRejectedLate());
+            System.out.printf("shaping delay avg %.1f ms, max %.1f ms (limit %d ms)%n",
+                    shaper.getAverageDelayMillis(), shaper.getMaxDelayMillis(), MAX_DELAY_MS);
+            System.out.printf("release spacing: ideal %.2f ms, mean error %.3f ms, worst %.3f ms%n",
+                    ideal / 1e6, gaps == 0 ? 0 : sumAbs / gaps / 1e6, worst / 1e6);
+
+            if (shaper.getMaxDelayMillis() > MAX_DELAY_MS) {
+                throw new IllegalStateException("A task was released after maxDelay");
+            }
+        }
+    }
+}
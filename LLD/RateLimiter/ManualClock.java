@@ -0,0 +1,34 @@
+package LLD.RateLimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// A nanosecond clock that only moves when told to. Pass it wherever a limiter takes a
+// LongSupplier clock to replay hours of traffic in milliseconds, with the same result on
+// every run.
+public class ManualClock implements LongSupplier {
+
+    private final AtomicLong now;
+
+    public ManualClock() {
+        this(0);
+    }
+
+    public ManualClock(long startNanos) {
+        this.now = new AtomicLong(startNanos);
+    }
+
+    @Override
+    public long getAsLong() {
+        return now.get();
+    }
+
+    public void set(long nanos) {
+        now.set(nanos);
+    }
+
+    public void advance(long duration, TimeUnit unit) {
+        now.addAndGet(unit.toNanos(duration));
+    }
+}
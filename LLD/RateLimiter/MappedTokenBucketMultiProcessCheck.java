@@ -0,0 +1,86 @@
+package LLD.RateLimiter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Starts several JVMs that all hammer the same key through one MappedTokenBucketRateLimiter
+// file, then checks the combined admission: across all processes it must stay within
+// maxToken + rate * elapsed (no process got its own private quota), and since every process
+// asks far more often than the rate allows, it should be close to that bound.
+//
+// Run: java LLD.RateLimiter.MappedTokenBucketMultiProcessCheck
+public class MappedTokenBucketMultiProcessCheck {
+
+    private static final int PROCESSES = 4;
+    private static final int SLOTS = 1 << 16;
+    private static final int MAX_TOKEN = 100;
+    private static final int RATE = 10_000;
+    private static final long RUN_MILLIS = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("child")) {
+            child(Path.of(args[1]));
+            return;
+        }
+
+        Path file = Files.createTempFile("rate-limiter", ".slots");
+        try {
+            List<Process> children = new ArrayList<>();
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            for (int i = 0; i < PROCESSES; i++) {
+                children.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        MappedTokenBucketMultiProcessCheck.class.getName(), "child", file.toString())
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start());
+            }
+
+            long admitted = 0, firstRequest = Long.MAX_VALUE, lastRequest = Long.MIN_VALUE;
+            for (Process child : children) {
+                try (BufferedReader out = new BufferedReader(new InputStreamReader(child.getInputStream()))) {
+                    String[] result = out.readLine().split(" ");
+                    admitted += Long.parseLong(result[0]);
+                    firstRequest = Math.min(firstRequest, Long.parseLong(result[1]));
+                    lastRequest = Math.max(lastRequest, Long.parseLong(result[2]));
+                }
+                if (child.waitFor() != 0) {
+                    throw new IllegalStateException("child process failed");
+                }
+            }
+
+            double elapsed = (lastRequest - firstRequest) / 1e9;
+            long bound = MAX_TOKEN + (long) (elapsed * RATE);
+            System.out.printf("%d processes over %.2fs: admitted=%d bound=%d (%.2f%% of bound)%n",
+                    PROCESSES, elapsed, admitted, bound, 100.0 * admitted / bound);
+            if (admitted > bound) {
+                throw new IllegalStateException("processes admitted more than the shared quota");
+            }
+            if (admitted < bound * 0.95) {
+                throw new IllegalStateException("processes admitted well under the shared quota");
+            }
+        } finally {
+            new File(file.toString()).delete();
+        }
+    }
+
+    // Prints "<admitted> <first request epoch nanos> <last request epoch nanos>".
+    private static void child(Path file) throws Exception {
+        try (MappedTokenBucketRateLimiter limiter = new MappedTokenBucketRateLimiter(file, SLOTS, MAX_TOKEN, RATE)) {
+            long admitted = 0;
+            long first = MappedTokenBucketRateLimiter.epochNanos();
+            long end = first + RUN_MILLIS * 1_000_000L;
+            long now;
+            do {
+                if (limiter.allowRequest("shared-quota")) {
+                    admitted++;
+                }
+                now = MappedTokenBucketRateLimiter.epochNanos();
+            } while (now < end);
+            System.out.println(admitted + " " + first + " " + now);
+        }
+    }
+}
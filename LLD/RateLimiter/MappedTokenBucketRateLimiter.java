@@ -0,0 +1,177 @@
+package LLD.RateLimiter;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.function.LongSupplier;
+
+// Keyed token buckets that live in a memory-mapped file, so several JVMs on the same host
+// can share one quota without a network hop. Every process maps the same file and updates
+// the buckets with compare-and-set directly on the mapped memory; CPU atomics work on shared
+// pages across processes just as they do across threads.
+//
+// Each bucket is the same single "emptyAt" word as ConcurrentTokenBucketRateLimiter, so
+// one CAS per request. Because nanoTime means nothing outside its own JVM, the clock here
+// is wall time in epoch nanoseconds, which every process on the host agrees on.
+//
+// File layout (native byte order, everything 8-byte aligned):
+//   header  64 bytes: magic, slotCount, maxToken, refillRatePerSecond
+//   slots   slotCount x 16 bytes: [key fingerprint][emptyAt]
+//
+// A key is hashed to a 64-bit fingerprint and placed by linear probing from
+// fingerprint % slotCount, claiming an empty slot with a CAS. A fingerprint of 0 marks a
+// free slot, and emptyAt = 0 (far in the past) means a full bucket, so a freshly claimed
+// slot needs no further initialisation. If all MAX_PROBES slots are taken the key shares
+// its home slot with whoever owns it, i.e. those keys get limited together: size the file
+// well above the number of live keys.
+public class MappedTokenBucketRateLimiter implements AutoCloseable {
+
+    private static final long MAGIC = 0x524C_4D41_5042_4B54L;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 16;
+    private static final int MAX_PROBES = 16;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+    private final int maxToken;
+    private final long nanosPerToken;
+    private final long fullBucketNanos;
+    private final LongSupplier clock;
+
+    public MappedTokenBucketRateLimiter(Path file, int slotCount, int maxToken, int refillRatePerSecond) throws IOException {
+        this(file, slotCount, maxToken, refillRatePerSecond, MappedTokenBucketRateLimiter::epochNanos);
+    }
+
+    // Every process sharing the file must pass the same slotCount, maxToken and rate; the
+    // first one to open it writes them into the header and the rest are checked against it.
+    public MappedTokenBucketRateLimiter(Path file, int slotCount, int maxToken, int refillRatePerSecond,
+                                        LongSupplier epochNanosClock) throws IOException {
+        if (slotCount <= 0 || maxToken <= 0) {
+            throw new IllegalArgumentException("slotCount and maxToken must be positive");
+        }
+        // Whole nanoseconds per token, as in ConcurrentTokenBucketRateLimiter: past its cap every
+        // process sharing the file would round the same way and admit well over the rate.
+        if (refillRatePerSecond <= 0 || refillRatePerSecond > ConcurrentTokenBucketRateLimiter.MAX_RATE_PER_SECOND) {
+            throw new IllegalArgumentException("refillRatePerSecond must be in (0, "
+                    + ConcurrentTokenBucketRateLimiter.MAX_RATE_PER_SECOND + "]: " + refillRatePerSecond);
+        }
+        this.slotCount = slotCount;
+        this.maxToken = maxToken;
+        this.nanosPerToken = 1_000_000_000L / refillRatePerSecond;
+        this.fullBucketNanos = maxToken * nanosPerToken;
+        this.clock = epochNanosClock;
+
+        long size = HEADER_BYTES + (long) slotCount * SLOT_BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A single mapping is limited to 2GB, slotCount too large: " + slotCount);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Mapping past the end grows the file with zeros, i.e. all slots free.
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        initHeader(refillRatePerSecond);
+    }
+
+    private void initHeader(int refillRatePerSecond) {
+        long config = ((long) maxToken << 32) | refillRatePerSecond;
+
+        // Whoever swaps MAGIC in first owns the header. Others wait for it to be filled in.
+        if ((boolean) LONGS.compareAndSet(buffer, 0, 0L, MAGIC)) {
+            buffer.putLong(16, config);
+            LONGS.setVolatile(buffer, 8, (long) slotCount);
+            return;
+        }
+        if ((long) LONGS.getVolatile(buffer, 0) != MAGIC) {
+            throw new IllegalStateException("Not a rate limiter file");
+        }
+        long storedSlots;
+        while ((storedSlots = (long) LONGS.getVolatile(buffer, 8)) == 0) {
+            Thread.onSpinWait();
+        }
+        if (storedSlots != slotCount || buffer.getLong(16) != config) {
+            throw new IllegalStateException("Rate limiter file was created with a different slotCount/maxToken/rate");
+        }
+    }
+
+    public boolean allowRequest(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    public boolean tryAcquire(String key, int permits) {
+        if (permits <= 0 || permits > maxToken) {
+            throw new IllegalArgumentException("permits must be in [1, " + maxToken + "]: " + permits);
+        }
+        int offset = slotOffset(key) + 8;
+        long cost = permits * nanosPerToken;
+
+        while (true) {
+            long current = (long) LONGS.getVolatile(buffer, offset);
+            long next = ConcurrentTokenBucketRateLimiter.take(current, clock.getAsLong(), cost, fullBucketNanos);
+            if (next == ConcurrentTokenBucketRateLimiter.DENIED) {
+                return false;
+            }
+            if ((boolean) LONGS.compareAndSet(buffer, offset, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    public int availablePermits(String key) {
+        long elapsed = clock.getAsLong() - (long) LONGS.getVolatile(buffer, slotOffset(key) + 8);
+        return elapsed <= 0 ? 0 : (int) Math.min(maxToken, elapsed / nanosPerToken);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping itself is released when the buffer is garbage collected.
+        channel.close();
+    }
+
+    // Byte offset of the key's slot, claiming one on first use.
+    private int slotOffset(String key) {
+        long fingerprint = fingerprint(key);
+        int home = (int) Long.remainderUnsigned(fingerprint, slotCount);
+
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int offset = HEADER_BYTES + ((home + probe) % slotCount) * SLOT_BYTES;
+            long owner = (long) LONGS.getVolatile(buffer, offset);
+            if (owner == fingerprint) {
+                return offset;
+            }
+            if (owner == 0) {
+                if ((boolean) LONGS.compareAndSet(buffer, offset, 0L, fingerprint)) {
+                    return offset;
+                }
+                // Lost the race for this slot; it might have been to the same key.
+                if ((long) LONGS.getVolatile(buffer, offset) == fingerprint) {
+                    return offset;
+                }
+            }
+        }
+        return HEADER_BYTES + home * SLOT_BYTES;
+    }
+
+    // 64-bit FNV-1a over the chars, so every JVM computes the same value (unlike
+    // identity hashes) and with far fewer collisions than String.hashCode.
+    static long fingerprint(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    static long epochNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+}
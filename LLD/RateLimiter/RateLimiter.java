@@ -0,0 +1,25 @@
+package LLD.RateLimiter;
+
+// Common API for every limiter engine in this package, so callers (and the comparison
+// benchmark) don't care whether they're talking to a token bucket, GCRA or a sliding
+// window.
+//
+// permits must be in [1, capacity]; asking for more than the limiter could ever grant is
+// a caller bug, so engines throw IllegalArgumentException instead of quietly returning
+// false forever. A false return must not consume anything.
+public interface RateLimiter {
+
+    boolean tryAcquire(int permits);
+
+    default boolean allowRequest() {
+        return tryAcquire(1);
+    }
+
+    // How many permits a tryAcquire right now could get. Only a snapshot under concurrency.
+    int availablePermits();
+
+    // How long until tryAcquire(permits) would succeed if nobody else takes anything in
+    // between; 0 if it would succeed now. Lets a waiter sleep exactly until the refill
+    // instead of polling (see BlockingRateLimiter).
+    long nanosUntilAvailable(int permits);
+}
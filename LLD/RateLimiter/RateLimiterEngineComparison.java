@@ -0,0 +1,179 @@
+package LLD.RateLimiter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Runs every RateLimiter engine through the same checks and measurements, so picking an
+// engine for an endpoint is a matter of reading one table:
+//   1. contract  - the behaviour all engines must agree on (same script for every engine)
+//   2. speed     - single-thread decisions/s against the real clock
+//   3. memory    - retained bytes per limiter instance, i.e. per key in a keyed setup
+//   4. accuracy  - a bursty trace replayed on a ManualClock (RateLimiterTraceReplay),
+//                  compared to an exact token bucket
+//
+// Every engine is configured for the same limit: RATE permits/s with bursts up to BURST.
+// The window engines get limit = BURST over a window of BURST / RATE seconds.
+//
+// Run: java LLD.RateLimiter.RateLimiterEngineComparison
+public class RateLimiterEngineComparison {
+
+    private static final int RATE = 1_000;
+    private static final int BURST = 100;
+
+    interface Engine {
+        RateLimiter create(int ratePerSecond, int burst, LongSupplier clock);
+    }
+
+    private static final Map<String, Engine> ENGINES = new LinkedHashMap<>();
+
+    static {
+        ENGINES.put("token-bucket", (rate, burst, clock) -> new ConcurrentTokenBucketRateLimiter(burst, rate, clock));
+        ENGINES.put("sharded-bucket", (rate, burst, clock) -> new ShardedTokenBucketRateLimiter(burst, rate, 4, 16, 10, clock));
+        ENGINES.put("gcra", (rate, burst, clock) -> new GcraRateLimiter(rate, burst, clock));
+        ENGINES.put("sliding-counter", (rate, burst, clock) -> new SlidingWindowCounterRateLimiter(burst, burst * 1000L / rate, clock));
+        ENGINES.put("sliding-log", (rate, burst, clock) -> new SlidingWindowLogRateLimiter(burst, burst * 1000L / rate, clock));
+    }
+
+    public static void main(String[] args) {
+        for (Map.Entry<String, Engine> engine : ENGINES.entrySet()) {
+            checkContract(engine.getKey(), engine.getValue());
+        }
+
+        System.out.printf("%n%-16s %14s %12s %10s %10s %12s %12s%n",
+                "engine", "decisions/s", "bytes/key", "admitted", "exact", "error", "worst 1s");
+        for (Map.Entry<String, Engine> engine : ENGINES.entrySet()) {
+            double throughput = throughput(engine.getValue());
+            double bytesPerKey = bytesPerInstance(engine.getValue());
+            RateLimiterTraceReplay.Result accuracy = accuracy(engine.getValue());
+            System.out.printf("%-16s %14.0f %12.1f %10d %10d %11.2f%% %7d/%d%n",
+                    engine.getKey(), throughput, bytesPerKey, accuracy.admitted, accuracy.ideal,
+                    accuracy.error() * 100, accuracy.worstSecond, RATE + BURST);
+        }
+    }
+
+    // ---- 1. contract ----
+
+    private static void checkContract(String name, Engine engine) {
+        AtomicLong now = new AtomicLong(1_000_000_000L);
+        RateLimiter limiter = engine.create(RATE, BURST, now::get);
+
+        expect(name, limiter.availablePermits() == BURST, "starts with the full burst available");
+        for (int i = 0; i < BURST - 2; i++) {
+            expect(name, limiter.allowRequest(), "admits the burst, request " + i);
+        }
+        expect(name, !limiter.tryAcquire(3), "rejects more permits than are left");
+        expect(name, limiter.tryAcquire(2), "a rejected tryAcquire doesn't consume anything");
+        expect(name, !limiter.allowRequest(), "rejects once the burst is spent");
+        expect(name, limiter.availablePermits() == 0, "reports nothing available once spent");
+        long wait = limiter.nanosUntilAvailable(1);
+        expect(name, wait > 0, "reports a wait once spent");
+        now.addAndGet(wait);
+        expect(name, limiter.nanosUntilAvailable(1) == 0 && limiter.allowRequest(),
+                "a permit is available exactly nanosUntilAvailable() later");
+        expectIllegalArgument(name, limiter, 0);
+        expectIllegalArgument(name, limiter, BURST + 1);
+
+        // The sliding counter needs two windows to forget a full window, so give every
+        // engine that long.
+        now.addAndGet(2L * BURST * 1_000_000_000L / RATE);
+        expect(name, limiter.tryAcquire(BURST), "a full burst is available again after idling");
+
+        // 10s at 4x overload: long-run admission must stay at the configured rate.
+        long seconds = 10, admitted = 0;
+        long step = 1_000_000_000L / (4L * RATE);
+        for (long t = 0; t < seconds * 1_000_000_000L; t += step) {
+            now.addAndGet(step);
+            if (limiter.allowRequest()) {
+                admitted++;
+            }
+        }
+        expect(name, admitted <= RATE * seconds + BURST, "never exceeds rate * time + burst, got " + admitted);
+        expect(name, admitted >= RATE * seconds * 9 / 10, "keeps up with the configured rate, got " + admitted);
+
+        System.out.println("contract ok: " + name);
+    }
+
+    private static void expect(String name, boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException(name + " broke the RateLimiter contract: " + what);
+        }
+    }
+
+    private static void expectIllegalArgument(String name, RateLimiter limiter, int permits) {
+        try {
+            limiter.tryAcquire(permits);
+        } catch (IllegalArgumentException expected) {
+            return;
+        }
+        throw new IllegalStateException(name + " accepted tryAcquire(" + permits + ")");
+    }
+
+    // ---- 2. speed ----
+
+    private static double throughput(Engine engine) {
+        RateLimiter limiter = engine.create(RATE, BURST, System::nanoTime);
+        long sink = 0;
+
+        // Warm up so we measure compiled code.
+        for (int i = 0; i < 2_000_000; i++) {
+            if (limiter.allowRequest()) {
+                sink++;
+            }
+        }
+        long calls = 0;
+        long start = System.nanoTime();
+        long end = start + 300_000_000L;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 1_000; i++) {
+                if (limiter.allowRequest()) {
+                    sink++;
+                }
+            }
+            calls += 1_000;
+        }
+        if (sink < 0) {
+            System.out.println(sink);
+        }
+        return calls / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // ---- 3. memory ----
+
+    private static double bytesPerInstance(Engine engine) {
+        int count = 50_000;
+        LongSupplier clock = System::nanoTime;
+        RateLimiter[] keep = new RateLimiter[count];
+
+        long before = usedHeap();
+        for (int i = 0; i < count; i++) {
+            keep[i] = engine.create(RATE, BURST, clock);
+        }
+        long after = usedHeap();
+        if (keep[count - 1] == null) {
+            throw new IllegalStateException();
+        }
+        return (double) (after - before) / count;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // ---- 4. accuracy ----
+
+    // Background traffic at half the limit, plus a burst of 3x the bucket size landing
+    // within 10ms every 2 seconds, for 30 simulated seconds.
+    private static RateLimiterTraceReplay.Result accuracy(Engine engine) {
+        long second = 1_000_000_000L;
+        long[] trace = RateLimiterTraceReplay.bursty(new Random(42), RATE / 2.0, 3 * BURST, 2 * second, 10_000_000L, 30 * second);
+        ManualClock clock = new ManualClock();
+        return RateLimiterTraceReplay.replay(engine.create(RATE, BURST, clock), clock, trace, RATE, BURST);
+    }
+}
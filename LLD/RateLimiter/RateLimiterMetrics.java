@@ -0,0 +1,211 @@
+package LLD.RateLimiter;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Counters for one limiter, cheap enough to leave on in production. The record* methods
+// are called on every decision, so they never allocate and never take a lock:
+//   - admitted/rejected are LongAdders (striped, so hot limiters don't fight over one
+//     counter's cache line)
+//   - refill lag is how long a rejected request would have had to wait for its tokens,
+//     i.e. how far over the limit the caller is. It goes into a fixed log2 histogram,
+//     one AtomicLongArray slot per power of two.
+//   - throttled keys go into a fixed table indexed by key hash. A slot held by another
+//     key is decayed by one on each collision and taken over when it reaches zero, so
+//     keys that get throttled a lot keep their slot and occasional ones churn through.
+//     Counts can under-count a busy key, but never report a key that isn't throttled.
+// The token level gauge is only read when someone looks at it.
+//
+// Usually created by InstrumentedRateLimiter / InstrumentedKeyedRateLimiter, then
+// register()ed to show up over JMX.
+public class RateLimiterMetrics implements RateLimiterMetricsMXBean {
+
+    private static final int LAG_BUCKETS = 64;
+    private static final int TOP_KEYS = 10;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLongArray refillLag = new AtomicLongArray(LAG_BUCKETS);
+
+    private final int keySlotMask;
+    private final AtomicReferenceArray<Object> throttledKeys;
+    private final AtomicLongArray throttledCounts;
+
+    private final IntSupplier tokenLevel;
+    private final IntSupplier trackedKeys;
+
+    public RateLimiterMetrics(IntSupplier tokenLevel) {
+        this(tokenLevel, () -> 0, 16);
+    }
+
+    // keySlots is rounded up to a power of two. Make it a few times the number of noisy
+    // keys you expect, so they rarely share a slot.
+    public RateLimiterMetrics(IntSupplier tokenLevel, IntSupplier trackedKeys, int keySlots) {
+        if (keySlots <= 0 || keySlots > 1 << 20) {
+            throw new IllegalArgumentException("keySlots must be in (0, 2^20]: " + keySlots);
+        }
+        int slots = Math.max(1, Integer.highestOneBit(keySlots - 1) << 1);
+        this.keySlotMask = slots - 1;
+        this.throttledKeys = new AtomicReferenceArray<>(slots);
+        this.throttledCounts = new AtomicLongArray(slots);
+        this.tokenLevel = tokenLevel;
+        this.trackedKeys = trackedKeys;
+    }
+
+    // ---- recording (hot path) ----
+
+    public void recordAdmitted() {
+        admitted.increment();
+    }
+
+    public void recordRejected(long refillLagNanos) {
+        rejected.increment();
+        refillLag.incrementAndGet(lagBucket(refillLagNanos));
+    }
+
+    public void recordRejected(Object key, long refillLagNanos) {
+        recordRejected(refillLagNanos);
+
+        int slot = spread(key.hashCode()) & keySlotMask;
+        Object owner = throttledKeys.get(slot);
+        if (owner == null) {
+            if (throttledKeys.compareAndSet(slot, null, key)) {
+                throttledCounts.set(slot, 1);
+            }
+            return;
+        }
+        if (owner.equals(key)) {
+            throttledCounts.incrementAndGet(slot);
+            return;
+        }
+        // Floored at zero: with several keys colliding at once a plain decrement could take
+        // the count negative, and the next owner would then need extra hits to show up.
+        long before = throttledCounts.getAndUpdate(slot, count -> count > 0 ? count - 1 : 0);
+        if (before <= 1 && throttledKeys.compareAndSet(slot, owner, key)) {
+            throttledCounts.set(slot, 1);
+        }
+    }
+
+    // ---- JMX ----
+
+    // Registers under LLD.RateLimiter:type=RateLimiter,name=<name>.
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("LLD.RateLimiter:type=RateLimiter,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public static void unregister(ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+    @Override
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public double getRejectRatio() {
+        long a = admitted.sum();
+        long r = rejected.sum();
+        return a + r == 0 ? 0 : (double) r / (a + r);
+    }
+
+    @Override
+    public int getTokenLevel() {
+        return tokenLevel.getAsInt();
+    }
+
+    @Override
+    public int getTrackedKeys() {
+        return trackedKeys.getAsInt();
+    }
+
+    @Override
+    public long[] getRefillLagHistogram() {
+        long[] counts = new long[LAG_BUCKETS];
+        for (int i = 0; i < LAG_BUCKETS; i++) {
+            counts[i] = refillLag.get(i);
+        }
+        return counts;
+    }
+
+    @Override
+    public double getRefillLagP50Millis() {
+        return refillLagPercentile(0.50) / 1e6;
+    }
+
+    @Override
+    public double getRefillLagP99Millis() {
+        return refillLagPercentile(0.99) / 1e6;
+    }
+
+    @Override
+    public String[] getTopThrottledKeys() {
+        List<Object> keys = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        for (int i = 0; i <= keySlotMask; i++) {
+            Object key = throttledKeys.get(i);
+            long count = throttledCounts.get(i);
+            if (key != null && count > 0) {
+                keys.add(key);
+                counts.add(count);
+            }
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            order.add(i);
+        }
+        order.sort((x, y) -> Long.compare(counts.get(y), counts.get(x)));
+
+        String[] top = new String[Math.min(TOP_KEYS, order.size())];
+        for (int i = 0; i < top.length; i++) {
+            int index = order.get(i);
+            top[i] = keys.get(index) + "=" + counts.get(index);
+        }
+        return top;
+    }
+
+    // Upper bound of the histogram bucket holding the p-th rejection.
+    private long refillLagPercentile(double p) {
+        long[] counts = getRefillLagHistogram();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * p);
+        long seen = 0;
+        for (int i = 0; i < LAG_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : i == 63 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static int lagBucket(long nanos) {
+        return nanos <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    // Same bit mixing as HashMap, so keys with poor low bits still spread over the table.
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
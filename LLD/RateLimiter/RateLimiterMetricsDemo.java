@@ -0,0 +1,94 @@
+package LLD.RateLimiter;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Drives an instrumented single bucket and an instrumented keyed limiter on a ManualClock,
+// registers both over JMX and reads the numbers back through the MBean server, the same
+// way jconsole or a JMX exporter would. Then checks that the recording path doesn't
+// allocate, so the metrics can stay on in production.
+//
+// Traffic for the keyed limiter: KEYS well-behaved keys at 1 request per tick, plus a few
+// noisy ones hammering away; only the noisy ones should show up as top throttled keys.
+//
+// Run: java LLD.RateLimiter.RateLimiterMetricsDemo
+public class RateLimiterMetricsDemo {
+
+    private static final int KEYS = 1_000;
+    private static final String[] NOISY = {"noisy-a", "noisy-b", "noisy-c"};
+
+    public static void main(String[] args) throws Exception {
+        ManualClock clock = new ManualClock();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        InstrumentedRateLimiter single = new InstrumentedRateLimiter(new ConcurrentTokenBucketRateLimiter(100, 1_000, clock));
+        InstrumentedKeyedRateLimiter<String> keyed = new InstrumentedKeyedRateLimiter<>(new KeyedRateLimiter<>(10, 10, clock));
+        ObjectName singleName = single.getMetrics().register("checkout-api");
+        ObjectName keyedName = keyed.getMetrics().register("per-client");
+
+        String[] keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "client-" + i;
+        }
+
+        // 10 seconds in 1ms ticks: 3 requests per tick against a 1000/s bucket, and the
+        // keyed traffic spread over the same ticks.
+        for (int tick = 0; tick < 10_000; tick++) {
+            for (int i = 0; i < 3; i++) {
+                single.allowRequest();
+            }
+            keyed.allowRequest(keys[tick % KEYS]);
+            for (int n = 0; n < NOISY.length; n++) {
+                for (int i = 0; i <= n; i++) {
+                    keyed.allowRequest(NOISY[n]);
+                }
+            }
+            clock.advance(1, TimeUnit.MILLISECONDS);
+        }
+
+        for (ObjectName name : new ObjectName[] {singleName, keyedName}) {
+            System.out.println(name);
+            for (String attribute : new String[] {"Admitted", "Rejected", "RejectRatio", "TokenLevel", "TrackedKeys",
+                    "RefillLagP50Millis", "RefillLagP99Millis"}) {
+                System.out.printf("  %-20s %s%n", attribute, server.getAttribute(name, attribute));
+            }
+            System.out.printf("  %-20s %s%n", "TopThrottledKeys",
+                    Arrays.toString((String[]) server.getAttribute(name, "TopThrottledKeys")));
+        }
+
+        String[] top = keyed.getMetrics().getTopThrottledKeys();
+        for (int i = 0; i < NOISY.length; i++) {
+            if (!top[i].startsWith(NOISY[NOISY.length - 1 - i] + "=")) {
+                throw new IllegalStateException("Expected noisy keys in order at the top: " + Arrays.toString(top));
+            }
+        }
+
+        // Recording path: admits and rejects on warm keys must not allocate.
+        long allocatedBefore = threadAllocatedBytes();
+        long decisions = 0;
+        for (int tick = 0; tick < 100_000; tick++) {
+            single.allowRequest();
+            keyed.allowRequest(keys[tick % KEYS]);
+            keyed.allowRequest(NOISY[0]);
+            decisions += 3;
+            clock.advance(100, TimeUnit.MICROSECONDS);
+        }
+        long allocated = threadAllocatedBytes() - allocatedBefore;
+        System.out.printf("recording path: %d decisions, allocated %d bytes (%.4f bytes/decision)%n",
+                decisions, allocated, (double) allocated / decisions);
+
+        RateLimiterMetrics.unregister(singleName);
+        RateLimiterMetrics.unregister(keyedName);
+    }
+
+    private static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,28 @@
+package LLD.RateLimiter;
+
+// What RateLimiterMetrics shows over JMX (jconsole, VisualVM, a JMX exporter, ...).
+// Everything here is computed on read; the recording side only bumps counters.
+public interface RateLimiterMetricsMXBean {
+
+    long getAdmitted();
+
+    long getRejected();
+
+    double getRejectRatio();
+
+    // Tokens available right now, or -1 for keyed limiters where every key has its own level.
+    int getTokenLevel();
+
+    // Keys with a live bucket; 0 for single-bucket limiters.
+    int getTrackedKeys();
+
+    // Rejections by refill lag, log2 buckets: entry i counts lags in [2^(i-1), 2^i) ns.
+    long[] getRefillLagHistogram();
+
+    double getRefillLagP50Millis();
+
+    double getRefillLagP99Millis();
+
+    // "key=count", most throttled first. Counts are approximate (see RateLimiterMetrics).
+    String[] getTopThrottledKeys();
+}
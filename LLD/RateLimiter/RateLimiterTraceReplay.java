@@ -0,0 +1,199 @@
+package LLD.RateLimiter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+// Replays request traces against rate limiters on a ManualClock, as fast as the CPU goes.
+// A trace is just a sorted long[] of request timestamps in nanoseconds; it can be recorded
+// (one timestamp per line in a file, see load()) or generated:
+//   poisson  - steady random arrivals at a mean rate
+//   bursty   - a Poisson background plus periodic bursts at a much higher rate
+//   diurnal  - a Poisson rate that follows a sine wave (day/night cycle, compressed)
+//
+// For each replay it reports admitted and dropped counts, the error against an ideal token
+// bucket with the same rate and burst (exact arithmetic), the most admitted in any one
+// second, and the cost of a decision in ns. Minutes of traffic take milliseconds, and a
+// given seed always gives the same numbers, so this doubles as a regression check.
+//
+// Run: java LLD.RateLimiter.RateLimiterTraceReplay [recorded-trace-file]
+public class RateLimiterTraceReplay {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    public static final class Result {
+        public final long admitted;
+        public final long dropped;
+        public final long ideal;
+        public final long worstSecond;
+        public final double nanosPerDecision;
+
+        Result(long admitted, long dropped, long ideal, long worstSecond, double nanosPerDecision) {
+            this.admitted = admitted;
+            this.dropped = dropped;
+            this.ideal = ideal;
+            this.worstSecond = worstSecond;
+            this.nanosPerDecision = nanosPerDecision;
+        }
+
+        public double error() {
+            return ideal == 0 ? 0 : (double) (admitted - ideal) / ideal;
+        }
+    }
+
+    // ---- traces ----
+
+    public static long[] poisson(Random random, double ratePerSecond, long durationNanos) {
+        return diurnal(random, ratePerSecond, 0, SECOND, durationNanos);
+    }
+
+    // Background Poisson traffic at baseRate, plus burstSize requests landing within
+    // burstSpreadNanos once every burstEveryNanos.
+    public static long[] bursty(Random random, double baseRate, int burstSize, long burstEveryNanos,
+                                long burstSpreadNanos, long durationNanos) {
+        long[] background = poisson(random, baseRate, durationNanos);
+        int bursts = (int) (durationNanos / burstEveryNanos);
+        long[] trace = Arrays.copyOf(background, background.length + bursts * burstSize);
+
+        int next = background.length;
+        for (int b = 0; b < bursts; b++) {
+            long start = b * burstEveryNanos + burstEveryNanos / 4;
+            for (int i = 0; i < burstSize; i++) {
+                trace[next++] = start + (long) (random.nextDouble() * burstSpreadNanos);
+            }
+        }
+        Arrays.sort(trace);
+        return trace;
+    }
+
+    // Poisson arrivals whose rate swings between meanRate * (1 - amplitude) and
+    // meanRate * (1 + amplitude) over each period. Generated by thinning: draw at the peak
+    // rate and keep each arrival with probability rate(t) / peak.
+    public static long[] diurnal(Random random, double meanRate, double amplitude, long periodNanos, long durationNanos) {
+        double peak = meanRate * (1 + amplitude);
+        long[] trace = new long[(int) (peak * durationNanos / SECOND * 1.1) + 16];
+        int count = 0;
+        double t = 0;
+
+        while (true) {
+            t += -Math.log(1 - random.nextDouble()) * SECOND / peak;
+            if (t >= durationNanos) {
+                break;
+            }
+            double rate = meanRate * (1 + amplitude * Math.sin(2 * Math.PI * t / periodNanos));
+            if (random.nextDouble() * peak <= rate) {
+                if (count == trace.length) {
+                    trace = Arrays.copyOf(trace, count * 2);
+                }
+                trace[count++] = (long) t;
+            }
+        }
+        return Arrays.copyOf(trace, count);
+    }
+
+    // A recorded trace: one request timestamp in nanoseconds per line, any origin.
+    public static long[] load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        long[] trace = lines.stream().map(String::trim).filter(line -> !line.isEmpty())
+                .mapToLong(Long::parseLong).sorted().toArray();
+        if (trace.length > 0) {
+            long origin = trace[0];
+            for (int i = 0; i < trace.length; i++) {
+                trace[i] -= origin;
+            }
+        }
+        return trace;
+    }
+
+    // ---- replay ----
+
+    public static Result replay(RateLimiter limiter, ManualClock clock, long[] trace, int ratePerSecond, int burst) {
+        long[] admittedAt = new long[trace.length];
+        int admitted = 0;
+
+        long start = System.nanoTime();
+        for (long t : trace) {
+            clock.set(t);
+            if (limiter.allowRequest()) {
+                admittedAt[admitted++] = t;
+            }
+        }
+        double nanosPerDecision = trace.length == 0 ? 0 : (double) (System.nanoTime() - start) / trace.length;
+
+        return new Result(admitted, trace.length - admitted, idealAdmitted(trace, ratePerSecond, burst),
+                worstSecond(admittedAt, admitted), nanosPerDecision);
+    }
+
+    // What a perfect token bucket would have admitted: exact (floating point) refill,
+    // no truncation, starting full.
+    static long idealAdmitted(long[] trace, int ratePerSecond, int burst) {
+        double tokens = burst;
+        long last = trace.length == 0 ? 0 : trace[0];
+        long admitted = 0;
+        for (long t : trace) {
+            tokens = Math.min(burst, tokens + (t - last) * (double) ratePerSecond / SECOND);
+            last = t;
+            if (tokens >= 1) {
+                tokens -= 1;
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+
+    private static long worstSecond(long[] admittedAt, int count) {
+        long worst = 0;
+        int from = 0;
+        for (int to = 0; to < count; to++) {
+            while (admittedAt[to] - admittedAt[from] >= SECOND) {
+                from++;
+            }
+            worst = Math.max(worst, to - from + 1);
+        }
+        return worst;
+    }
+
+    // ---- demo ----
+
+    public static void main(String[] args) throws IOException {
+        int rate = 1_000, burst = 100;
+        long duration = 600 * SECOND;
+
+        Map<String, long[]> traces = new LinkedHashMap<>();
+        traces.put("poisson 2x", poisson(new Random(1), 2.0 * rate, duration));
+        traces.put("bursty", bursty(new Random(2), 0.5 * rate, 3 * burst, 2 * SECOND, 10_000_000L, duration));
+        traces.put("diurnal", diurnal(new Random(3), rate, 0.8, 60 * SECOND, duration));
+        if (args.length > 0) {
+            traces.put("recorded", load(Path.of(args[0])));
+        }
+
+        Map<String, Function<ManualClock, RateLimiter>> limiters = new LinkedHashMap<>();
+        limiters.put("token-bucket", clock -> new TokenBucketRateLimiter(burst, rate, clock));
+        limiters.put("token-bucket/precise", clock -> TokenBucketRateLimiter.highPrecision(burst, rate, clock));
+        limiters.put("cas-bucket", clock -> new ConcurrentTokenBucketRateLimiter(burst, rate, clock));
+        limiters.put("gcra", clock -> new GcraRateLimiter(rate, burst, clock));
+        limiters.put("sliding-counter", clock -> new SlidingWindowCounterRateLimiter(burst, burst * 1000L / rate, clock));
+        limiters.put("sliding-log", clock -> new SlidingWindowLogRateLimiter(burst, burst * 1000L / rate, clock));
+
+        long wallStart = System.nanoTime();
+        System.out.printf("%-12s %-22s %10s %10s %10s %9s %10s %8s%n",
+                "trace", "limiter", "admitted", "dropped", "ideal", "error", "worst 1s", "ns/op");
+        for (Map.Entry<String, long[]> trace : traces.entrySet()) {
+            for (Map.Entry<String, Function<ManualClock, RateLimiter>> limiter : limiters.entrySet()) {
+                ManualClock clock = new ManualClock();
+                Result result = replay(limiter.getValue().apply(clock), clock, trace.getValue(), rate, burst);
+                System.out.printf("%-12s %-22s %10d %10d %10d %+8.2f%% %10d %8.1f%n",
+                        trace.getKey(), limiter.getKey(), result.admitted, result.dropped, result.ideal,
+                        result.error() * 100, result.worstSecond, result.nanosPerDecision);
+            }
+        }
+        System.out.printf("replayed %d simulated seconds per row in %.0f ms total%n",
+                duration / SECOND, (System.nanoTime() - wallStart) / 1e6);
+    }
+}
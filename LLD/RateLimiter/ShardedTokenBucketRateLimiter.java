@@ -0,0 +1,210 @@
+package LLD.RateLimiter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// A ConcurrentTokenBucketRateLimiter still has one hot word that every core CASes. This
+// splits the work: each thread maps to a shard, and a shard borrows a small batch of
+// tokens ("lease") from the global bucket and hands them out locally. The global word is
+// only touched once per `leaseSize` requests, and each shard sits on its own cache line.
+//
+// Leases expire after `leaseMillis`. Whatever is left over goes back to the global bucket,
+// either lazily by the next thread that hits the shard, when the global bucket runs dry,
+// or by reclaimExpiredLeases() on a timer.
+//
+// Error bound (S = shard count, L = leaseSize):
+//   - Tokens are only ever moved out of the global bucket, never created, so over any
+//     run admitted <= maxToken + rate * elapsed, exactly like the unsharded bucket.
+//   - Within a short window, up to S * (L - 1) tokens can sit in leases on top of the
+//     maxToken in the bucket, so the worst-case burst is maxToken + S * (L - 1).
+//   - Going the other way, tokens returned to an already full bucket are dropped, so the
+//     bucket can under-admit by at most S * (L - 1) per lease period.
+// Keep S * L small next to maxToken and the sharded bucket is indistinguishable from the
+// plain one.
+public class ShardedTokenBucketRateLimiter implements RateLimiter {
+
+    // Padded so neighbouring shards don't share a cache line. The JVM lays out fields of a
+    // class hierarchy superclass-first, which keeps the padding on both sides of the hot
+    // fields. `leased` is a plain volatile field driven through a VarHandle rather than an
+    // AtomicLong, because an AtomicLong is a separate object the padding wouldn't cover.
+    static class ShardPadBefore {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    static class ShardState extends ShardPadBefore {
+        volatile long leased;
+        volatile long leaseDeadline;
+    }
+
+    static final class Shard extends ShardState {
+        long p11, p12, p13, p14, p15, p16, p17;
+    }
+
+    private static final VarHandle LEASED;
+
+    static {
+        try {
+            LEASED = MethodHandles.lookup().findVarHandle(ShardState.class, "leased", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ConcurrentTokenBucketRateLimiter global;
+    private final Shard[] shards;
+    private final int shardMask;
+    private final int leaseSize;
+    private final long leaseNanos;
+    private final LongSupplier clock;
+
+    public ShardedTokenBucketRateLimiter(int maxToken, int refillRatePerSecond) {
+        this(maxToken, refillRatePerSecond, Runtime.getRuntime().availableProcessors() * 2, 16, 10, System::nanoTime);
+    }
+
+    public ShardedTokenBucketRateLimiter(int maxToken, int refillRatePerSecond, int shardCount,
+                                         int leaseSize, long leaseMillis, LongSupplier clock) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        }
+        if (leaseSize <= 0 || leaseSize > maxToken) {
+            throw new IllegalArgumentException("leaseSize must be in [1, maxToken]: " + leaseSize);
+        }
+        this.global = new ConcurrentTokenBucketRateLimiter(maxToken, refillRatePerSecond, clock);
+        this.leaseSize = leaseSize;
+        this.leaseNanos = TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+        this.clock = clock;
+
+        int size = Integer.highestOneBit(shardCount - 1) << 1;
+        if (size <= 0) {
+            size = 1;
+        }
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard();
+        }
+        this.shardMask = size - 1;
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be positive: " + permits);
+        }
+        if (permits >= leaseSize) {
+            // Too big to be worth leasing, go straight to the global bucket.
+            return global.tryAcquire(permits);
+        }
+
+        Shard shard = shardForCurrentThread();
+        long now = clock.getAsLong();
+
+        if (now - shard.leaseDeadline > 0) {
+            returnLease(shard);
+        } else {
+            long left = shard.leased;
+            while (left >= permits) {
+                if (LEASED.compareAndSet(shard, left, left - permits)) {
+                    return true;
+                }
+                left = shard.leased;
+            }
+        }
+
+        if (borrow(shard, permits, now)) {
+            return true;
+        }
+
+        // The global bucket is dry. Before saying no, pull back leases other shards are
+        // sitting on past their deadline, so idle shards can't starve busy ones.
+        if (reclaimExpiredLeases(now) > 0) {
+            return borrow(shard, permits, now);
+        }
+        return false;
+    }
+
+    // Borrows a fresh lease, keeps `permits` of it for this request and parks the rest on
+    // the shard. Only installs the lease on an empty shard so a shard never holds more
+    // than one lease; if another thread got there first the extra tokens go straight back.
+    private boolean borrow(Shard shard, int permits, long now) {
+        int granted = global.tryAcquireUpTo(leaseSize, now);
+        if (granted < permits) {
+            global.release(granted);
+            return false;
+        }
+
+        int rest = granted - permits;
+        if (rest > 0) {
+            shard.leaseDeadline = now + leaseNanos;
+            if (!LEASED.compareAndSet(shard, 0L, (long) rest)) {
+                global.release(rest);
+            }
+        }
+        return true;
+    }
+
+    private int returnLease(Shard shard) {
+        long left = (long) LEASED.getAndSet(shard, 0L);
+        if (left > 0) {
+            global.release((int) left);
+        }
+        return (int) left;
+    }
+
+    // Returns every expired lease to the global bucket. Cheap enough to call from a
+    // timer every few lease periods; also called on the reject path.
+    public int reclaimExpiredLeases() {
+        return reclaimExpiredLeases(clock.getAsLong());
+    }
+
+    private int reclaimExpiredLeases(long now) {
+        int reclaimed = 0;
+        for (Shard shard : shards) {
+            if (now - shard.leaseDeadline > 0 && shard.leased > 0) {
+                reclaimed += returnLease(shard);
+            }
+        }
+        return reclaimed;
+    }
+
+    public ScheduledFuture<?> scheduleLeaseReclaim(ScheduledExecutorService scheduler) {
+        long period = Math.max(1, leaseNanos);
+        return scheduler.scheduleAtFixedRate(this::reclaimExpiredLeases, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    // Tokens in the global bucket plus everything currently leased out.
+    @Override
+    public int availablePermits() {
+        long leased = 0;
+        for (Shard shard : shards) {
+            leased += shard.leased;
+        }
+        return (int) (global.availablePermits() + leased);
+    }
+
+    @Override
+    public long nanosUntilAvailable(int permits) {
+        if (permits < leaseSize && shardForCurrentThread().leased >= permits) {
+            return 0;
+        }
+        return global.nanosUntilAvailable(permits);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Worst-case extra burst on top of maxToken, see the class comment.
+    public int maxLeasedTokens() {
+        return shards.length * (leaseSize - 1);
+    }
+
+    private Shard shardForCurrentThread() {
+        // Fibonacci hashing spreads sequential thread ids across the shards.
+        long id = Thread.currentThread().getId();
+        return shards[(int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & shardMask];
+    }
+}
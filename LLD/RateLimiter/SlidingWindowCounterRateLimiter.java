@@ -0,0 +1,137 @@
+package LLD.RateLimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Sliding window counter: keep the count of the current fixed window and the previous one,
+// and estimate the sliding window as
+//
+//   previous * (part of the previous window still inside the sliding window) + current
+//
+// It's an approximation (it assumes the previous window's requests were spread evenly),
+// but it fixes the 2x burst a plain fixed window allows at window boundaries and needs no
+// per-request storage.
+//
+// All three numbers fit in one long, so updates are a single CAS:
+//   [ window index (low 24 bits) | previous count (20 bits) | current count (20 bits) ]
+// Only the low bits of the window index are kept; that's enough to tell "same window",
+// "next window" and "older than that" apart.
+public class SlidingWindowCounterRateLimiter implements RateLimiter {
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long INDEX_MASK = (1L << 24) - 1;
+    private static final long MAX_WINDOW_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final int limit;
+    private final long windowNanos;
+    private final long origin;
+    private final LongSupplier clock;
+
+    private final AtomicLong state = new AtomicLong();
+
+    public SlidingWindowCounterRateLimiter(int limit, long windowMillis) {
+        this(limit, windowMillis, System::nanoTime);
+    }
+
+    public SlidingWindowCounterRateLimiter(int limit, long windowMillis, LongSupplier clock) {
+        if (limit <= 0 || limit > COUNT_MASK) {
+            throw new IllegalArgumentException("limit must be in [1, " + COUNT_MASK + "]: " + limit);
+        }
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        if (windowNanos <= 0 || windowNanos > MAX_WINDOW_NANOS) {
+            // Capped so previous * windowNanos below can't overflow.
+            throw new IllegalArgumentException("windowMillis must be in (0, 1h]: " + windowMillis);
+        }
+        this.limit = limit;
+        this.windowNanos = windowNanos;
+        this.clock = clock;
+        this.origin = clock.getAsLong();
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0 || permits > limit) {
+            throw new IllegalArgumentException("permits must be in [1, " + limit + "]: " + permits);
+        }
+
+        while (true) {
+            long current = state.get();
+            long sinceOrigin = clock.getAsLong() - origin;
+            long window = sinceOrigin / windowNanos;
+            long intoWindow = sinceOrigin - window * windowNanos;
+
+            long rolled = roll(current, window);
+            long previous = (rolled >>> COUNT_BITS) & COUNT_MASK;
+            long count = rolled & COUNT_MASK;
+
+            if (estimate(previous, count, intoWindow) + permits > limit) {
+                return false;
+            }
+            if (state.compareAndSet(current, rolled + permits)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public int availablePermits() {
+        long sinceOrigin = clock.getAsLong() - origin;
+        long window = sinceOrigin / windowNanos;
+        long rolled = roll(state.get(), window);
+        long estimate = estimate((rolled >>> COUNT_BITS) & COUNT_MASK, rolled & COUNT_MASK,
+                sinceOrigin - window * windowNanos);
+        return (int) Math.max(0, limit - estimate);
+    }
+
+    @Override
+    public long nanosUntilAvailable(int permits) {
+        if (permits <= 0 || permits > limit) {
+            throw new IllegalArgumentException("permits must be in [1, " + limit + "]: " + permits);
+        }
+        long sinceOrigin = clock.getAsLong() - origin;
+        long window = sinceOrigin / windowNanos;
+        long intoWindow = sinceOrigin - window * windowNanos;
+        long rolled = roll(state.get(), window);
+        long previous = (rolled >>> COUNT_BITS) & COUNT_MASK;
+        long count = rolled & COUNT_MASK;
+
+        if (count + permits <= limit) {
+            // Fits in this window once enough of the previous window has slid out.
+            return untilPreviousShareFits(previous, limit - count - permits, windowNanos - intoWindow);
+        }
+        // Has to wait for the next window, where this window's count becomes `previous`.
+        return (windowNanos - intoWindow) + untilPreviousShareFits(count, limit - permits, windowNanos);
+    }
+
+    // How long until ceil(previous * remaining / window) <= room, given `remaining` nanos of
+    // the previous window are currently still inside the sliding window.
+    private long untilPreviousShareFits(long previous, long room, long remaining) {
+        if (previous == 0) {
+            return 0;
+        }
+        long allowedRemaining = room * windowNanos / previous;
+        return Math.max(0, remaining - allowedRemaining);
+    }
+
+    // Moves the packed state forward to `window`: current becomes previous when we've
+    // stepped into the next window, and both reset if we've skipped one or more.
+    private long roll(long state, long window) {
+        long stored = state >>> (2 * COUNT_BITS);
+        long index = window & INDEX_MASK;
+        long steps = (index - stored) & INDEX_MASK;
+        if (steps == 0) {
+            return state;
+        }
+        long previous = steps == 1 ? state & COUNT_MASK : 0;
+        return (index << (2 * COUNT_BITS)) | (previous << COUNT_BITS);
+    }
+
+    private long estimate(long previous, long count, long intoWindow) {
+        // Round the previous window's share up so the approximation errs on the side of
+        // rejecting, never over-admitting.
+        long remaining = windowNanos - intoWindow;
+        return (previous * remaining + windowNanos - 1) / windowNanos + count;
+    }
+}
@@ -0,0 +1,82 @@
+package LLD.RateLimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Sliding window log: remember the timestamp of every permit handed out in the last
+// window and admit only if fewer than `limit` are still inside it. This is the exact
+// answer the other engines approximate, paid for with `limit` longs of memory per limiter.
+//
+// The log is a ring of the last `limit` permit timestamps, oldest at `head`. Handing out n
+// permits needs the n oldest entries to have left the window, and then overwrites them
+// with `now`. Several slots can't be updated with one CAS, so this one is synchronized.
+public class SlidingWindowLogRateLimiter implements RateLimiter {
+
+    private final int limit;
+    private final long windowNanos;
+    private final LongSupplier clock;
+
+    private final long[] log;
+    private int head;
+
+    public SlidingWindowLogRateLimiter(int limit, long windowMillis) {
+        this(limit, windowMillis, System::nanoTime);
+    }
+
+    public SlidingWindowLogRateLimiter(int limit, long windowMillis, LongSupplier clock) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive: " + limit);
+        }
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be positive: " + windowMillis);
+        }
+        this.limit = limit;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.clock = clock;
+        this.log = new long[limit];
+
+        // Pretend every slot was used just over a window ago, so the limiter starts empty.
+        long expired = clock.getAsLong() - windowNanos;
+        for (int i = 0; i < limit; i++) {
+            log[i] = expired;
+        }
+    }
+
+    @Override
+    public synchronized boolean tryAcquire(int permits) {
+        if (permits <= 0 || permits > limit) {
+            throw new IllegalArgumentException("permits must be in [1, " + limit + "]: " + permits);
+        }
+        long now = clock.getAsLong();
+
+        // Entries are in time order, so if the n-th oldest has expired all before it have too.
+        if (now - log[(head + permits - 1) % limit] < windowNanos) {
+            return false;
+        }
+        for (int i = 0; i < permits; i++) {
+            log[head] = now;
+            head = head + 1 == limit ? 0 : head + 1;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized long nanosUntilAvailable(int permits) {
+        if (permits <= 0 || permits > limit) {
+            throw new IllegalArgumentException("permits must be in [1, " + limit + "]: " + permits);
+        }
+        // The n-th oldest entry has to leave the window.
+        long expiresAt = log[(head + permits - 1) % limit] + windowNanos;
+        return Math.max(0, expiresAt - clock.getAsLong());
+    }
+
+    @Override
+    public synchronized int availablePermits() {
+        long now = clock.getAsLong();
+        int available = 0;
+        while (available < limit && now - log[(head + available) % limit] >= windowNanos) {
+            available++;
+        }
+        return available;
+    }
+}
@@ -0,0 +1,141 @@
+package LLD.RateLimiter;
+
+import java.util.function.LongSupplier;
+
+// Not thread-safe: see ConcurrentTokenBucketRateLimiter for the lock-free version.
+//
+// The default refill() only adds whole tokens and then moves lastRefillTimestamp to `now`,
+// so the fraction of a token earned since the last whole one is thrown away every time.
+// At a few requests per second that's invisible; at high rates with frequent calls it adds
+// up to a noticeable under-admission (see TokenBucketPrecisionCheck).
+//
+// highPrecision() buckets keep the credit in nano-tokens instead: one token is 1e9 units
+// and every elapsed nanosecond earns refillRatePerSecond units. That's all integer math,
+// so nothing is ever rounded away, and a tryAcquire(cost) debits cost tokens exactly.
+public class TokenBucketRateLimiter implements RateLimiter {
+    private static final long NANO_TOKENS_PER_TOKEN = 1_000_000_000L;
+
+    private final int maxToken;
+    private final int refillRatePerSecond;
+    private final boolean highPrecision;
+    private final LongSupplier clock;
+
+    private int currToken;
+    private long lastRefillTimestamp;
+
+    // Only used in high-precision mode; currToken is then just credit / 1e9.
+    private long credit;
+
+    public TokenBucketRateLimiter(int maxToken, int refillRatePerSecond) {
+        this(maxToken, refillRatePerSecond, System::nanoTime);
+    }
+
+    // `clock` returns nanoseconds like System.nanoTime(); tests and trace replays pass a
+    // ManualClock so time only moves when they say so.
+    public TokenBucketRateLimiter(int maxToken, int refillRatePerSecond, LongSupplier clock) {
+        this(maxToken, refillRatePerSecond, false, clock);
+    }
+
+    private TokenBucketRateLimiter(int maxToken, int refillRatePerSecond, boolean highPrecision, LongSupplier clock) {
+        this.maxToken = maxToken;
+        this.refillRatePerSecond = refillRatePerSecond;
+        this.highPrecision = highPrecision;
+        this.clock = clock;
+        this.currToken = maxToken;
+        this.credit = maxToken * NANO_TOKENS_PER_TOKEN;
+        this.lastRefillTimestamp = clock.getAsLong();
+    }
+
+    public static TokenBucketRateLimiter highPrecision(int maxToken, int refillRatePerSecond) {
+        return highPrecision(maxToken, refillRatePerSecond, System::nanoTime);
+    }
+
+    public static TokenBucketRateLimiter highPrecision(int maxToken, int refillRatePerSecond, LongSupplier clock) {
+        if (maxToken <= 0 || refillRatePerSecond <= 0) {
+            throw new IllegalArgumentException("maxToken and refillRatePerSecond must be positive");
+        }
+        return new TokenBucketRateLimiter(maxToken, refillRatePerSecond, true, clock);
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+
+        if (highPrecision) {
+            refillNanoTokens(now);
+            return;
+        }
+
+        // Important: We use double here because if we use int,
+        // any interval less than 1 second will be considered 0, and no tokens will be added.
+        // But even a small fraction like 0.x seconds, when multiplied with refillRatePerSecond,
+        // can result in 1 or more tokens — so using double ensures we don't miss valid refills.
+
+        double diff = (now - lastRefillTimestamp) / 1_000_000_000.0;
+        int tokensToAdd = (int) (diff * refillRatePerSecond);
+        if (tokensToAdd > 0) {
+            currToken = Math.min(maxToken, currToken + tokensToAdd);
+
+            // Also use `now` here and not clock.getAsLong() again;
+            lastRefillTimestamp = now;
+        }
+    }
+
+    private void refillNanoTokens(long now) {
+        long capacity = maxToken * NANO_TOKENS_PER_TOKEN;
+        if (credit < capacity) {
+            // Clamp before multiplying: anything past "time to fill up" is wasted anyway,
+            // and it keeps elapsed * rate from overflowing after a long idle.
+            long elapsed = Math.min(now - lastRefillTimestamp, (capacity - credit) / refillRatePerSecond + 1);
+            credit = Math.min(capacity, credit + elapsed * refillRatePerSecond);
+            currToken = (int) (credit / NANO_TOKENS_PER_TOKEN);
+        }
+        // Always safe to move to `now` here: every nanosecond has been turned into credit.
+        lastRefillTimestamp = now;
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0 || permits > maxToken) {
+            throw new IllegalArgumentException("permits must be in [1, " + maxToken + "]: " + permits);
+        }
+        refill();
+
+        if (currToken >= permits) {
+            if (highPrecision) {
+                credit -= permits * NANO_TOKENS_PER_TOKEN;
+                currToken = (int) (credit / NANO_TOKENS_PER_TOKEN);
+            } else {
+                currToken -= permits;
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int availablePermits() {
+        refill();
+        return currToken;
+    }
+
+    @Override
+    public long nanosUntilAvailable(int permits) {
+        if (permits <= 0 || permits > maxToken) {
+            throw new IllegalArgumentException("permits must be in [1, " + maxToken + "]: " + permits);
+        }
+        refill();
+        int missing = permits - currToken;
+        if (missing <= 0) {
+            return 0;
+        }
+        if (highPrecision) {
+            // Credit was brought up to date by refill(), so count from now.
+            long missingCredit = permits * NANO_TOKENS_PER_TOKEN - credit;
+            return (missingCredit + refillRatePerSecond - 1) / refillRatePerSecond;
+        }
+        // refill() counts whole tokens from lastRefillTimestamp, so that's the reference point.
+        long needed = (long) Math.ceil(missing * 1_000_000_000.0 / refillRatePerSecond);
+        return Math.max(0, lastRefillTimestamp + needed - clock.getAsLong());
+    }
+}
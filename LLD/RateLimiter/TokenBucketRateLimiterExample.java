@@ -1,53 +1,14 @@
 package LLD.RateLimiter;
 
-public class TokenBucketRateLimiterExample {
-
-    static class TokenBucketRateLimiter{
-        private final int maxToken;
-        private final int refillRatePerSecond;
-
-        private int currToken;
-        private long lastRefillTimestamp;
-
-        public TokenBucketRateLimiter(int maxToken, int refillRatePerSecond) {
-            this.maxToken = maxToken;
-            this.refillRatePerSecond = refillRatePerSecond;
-            this.currToken = maxToken;
-            this.lastRefillTimestamp = System.nanoTime();
-        }
+import java.util.concurrent.TimeUnit;
 
-        private void refill() {
-            long now = System.nanoTime();
-
-            // Important: We use double here because if we use int,
-            // any interval less than 1 second will be considered 0, and no tokens will be added.
-            // But even a small fraction like 0.x seconds, when multiplied with refillRatePerSecond,
-            // can result in 1 or more tokens — so using double ensures we don't miss valid refills.
-
-            double diff = (now - lastRefillTimestamp) / 1_000_000_000.0;
-            int tokensToAdd = (int) (diff * refillRatePerSecond);
-            if (tokensToAdd > 0) {
-                currToken = Math.min(maxToken, currToken + tokensToAdd);
-
-                // Also use `now` here and not System.nano();
-                lastRefillTimestamp = now;
-            }
-        }
-
-        public boolean allowRequest() {
-            refill();
-
-            if (currToken > 0) {
-                currToken--;
-                return true;
-            }
-
-            return false;
-        }
-    }
+public class TokenBucketRateLimiterExample {
 
-    public static void main(String[] args) throws InterruptedException {
-        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, 7);
+    public static void main(String[] args) {
+        // A ManualClock instead of Thread.sleep(100): same 10 seconds of requests, same
+        // result every run, but it finishes instantly.
+        ManualClock clock = new ManualClock();
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, 7, clock);
         int requestAllowed = 0, requestDropped = 0;
 
         for (int i=0; i<100; i++) {
@@ -58,7 +19,7 @@ public class TokenBucketRateLimiterExample {
                 requestDropped++;
                 System.out.println("Request Dropped: " + i);
             }
-            Thread.sleep(100);
+            clock.advance(100, TimeUnit.MILLISECONDS);
         }
 
         System.out.println("Request Allowed Count: " + requestAllowed);